@@ -23,6 +23,8 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,11 +40,12 @@ import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE0;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE90;
 import uk.theretiredprogrammer.racetrainingsketch.core.Channel;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Channel.CHANNELOFF;
-import uk.theretiredprogrammer.racetrainingsketch.core.DistancePolar;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
 import uk.theretiredprogrammer.racetrainingsketch.core.StringParser;
-import uk.theretiredprogrammer.racetrainingsketch.flows.Flow;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+import uk.theretiredprogrammer.racetrainingsketch.playback.BoatFrame;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.Snapshotable;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
@@ -52,7 +55,7 @@ import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
  *
  * @author Richard Linsdale (richard at theretiredprogrammer.uk)
  */
-public abstract class Boat {
+public abstract class Boat implements Snapshotable {
     
     private final Supplier<Controller> controllersupplier;
     //
@@ -74,11 +77,19 @@ public abstract class Boat {
     public Channel upwindchannel;
     public Channel downwindchannel;
     private final Color sailcolor = Color.white;
+    // flow lookups are made into these, to avoid allocation on every move
+    private final FlowVector windvector = new FlowVector();
+    private final FlowVector watervector = new FlowVector();
+    private final FlowVector drawvector = new FlowVector();
     public final BoatMetrics metrics;
     //
     private double boatspeed = 0;
     private Angle rotationAnglePerSecond;
+    private double distancesailed = 0;
+    private double sailingtime = 0;
+    private double nextminutemark = 0;
     private final List<Location> track = Collections.synchronizedList(new ArrayList<Location>());
+    private final List<Location> minutemarks = Collections.synchronizedList(new ArrayList<Location>());
 
     public Boat(Supplier<Controller> controllersupplier, JsonObject paramsobj, BoatMetrics metrics) throws IOException {
         this.controllersupplier = controllersupplier;
@@ -169,57 +180,211 @@ public abstract class Boat {
         return this.location.angleto(location).between(min, max);
     }
 
+    /**
+     * Move the boat, using the current decision.
+     *
+     * @return true if a mark rounding has been completed
+     * @throws IOException if problems
+     */
     public boolean moveUsingDecision() throws IOException {
+        BoatMove move = nextMove(1);
+        applyMove(move);
+        return move.isLegCompleted();
+    }
+
+    /**
+     * Calculate the next move of the boat, using the current decision. The
+     * boat's position is not changed until the move is applied.
+     *
+     * @param dt the time step (seconds)
+     * @return the move
+     * @throws IOException if problems
+     */
+    public BoatMove nextMove(double dt) throws IOException {
         Controller controller = controllersupplier.get();
-        SpeedPolar windflow = controller.windflow.getFlow(location);
-        Flow waterFlow = controller.waterflow;
-        SpeedPolar waterflow = waterFlow != null ? waterFlow.getFlow(location) : new SpeedPolar(0, ANGLE0);
+        FlowVector windflow = windvector;
+        controller.windflow.getFlow(location.getX(), location.getY(), windflow);
+        if (controller.windshadow != null) {
+            controller.windshadow.apply(this, windflow);
+        }
+        FlowVector waterflow = watervector;
+        if (controller.waterflow != null) {
+            controller.waterflow.getFlow(location.getX(), location.getY(), waterflow);
+        } else {
+            waterflow.set(0, 0);
+        }
         Decision decision = controller.boatstrategies.getStrategy(this).decision;
         switch (decision.getAction()) {
             case SAILON:
-                moveBoat(direction, windflow, waterflow);
-                return false;
+                return moveBoat(dt, direction, windflow, waterflow, false);
             case STOP:
-                return false;
+                return new BoatMove(dt, location, direction, boatspeed, rotationAnglePerSecond, false, false);
             case MARKROUNDING:
-                return turn(decision, windflow, waterflow);
+                return turn(dt, decision, windflow, waterflow, true);
             case TURN:
-                turn(decision, windflow, waterflow);
-                return false;
+                return turn(dt, decision, windflow, waterflow, false);
             default:
                 throw new IOException("Illegal sailing Mode when moving boat");
         }
     }
 
-    private boolean turn(Decision decision, SpeedPolar windflow, SpeedPolar waterflow) {
+    public double getBoatSpeed() {
+        return boatspeed;
+    }
+
+    /**
+     * Calculate the move of the boat, sailing on in its current direction,
+     * in a known flow.
+     *
+     * @param dt the time step (seconds)
+     * @param windflow the wind flow at the boat
+     * @param waterflow the water flow at the boat
+     * @return the move
+     */
+    public BoatMove sailOn(double dt, FlowVector windflow, FlowVector waterflow) {
+        return moveBoat(dt, direction, windflow, waterflow, false);
+    }
+
+    /**
+     * Get the maximum speed over the ground that the boat could reach if it
+     * sails on in its current direction, in a known flow.
+     *
+     * @param windflow the wind flow
+     * @param waterflow the water flow
+     * @return the speed (metres/second)
+     */
+    public double getMaxSpeedOverGround(FlowVector windflow, FlowVector waterflow) {
+        double potentialBoatspeed = SpeedPolar.convertKnots2MetresPerSecond(
+                metrics.getPotentialBoatSpeed(getAngleToWind(direction, windflow), windflow.getSpeed()));
+        return Math.max(boatspeed, potentialBoatspeed) + SpeedPolar.convertKnots2MetresPerSecond(waterflow.getSpeed());
+    }
+
+    /**
+     * Get the distance sailed (through the track) since the start.
+     *
+     * @return the distance sailed (metres)
+     */
+    public double getDistanceSailed() {
+        return distancesailed;
+    }
+
+    /**
+     * Apply a move (as calculated by nextMove) to the boat.
+     *
+     * @param move the move
+     */
+    public void applyMove(BoatMove move) {
+        if (move.isMoving()) {
+            distancesailed += location.to(move.location);
+            location = move.location; // updated position calculated
+            track.add(location); // record it in track
+            if (sailingtime >= nextminutemark) {
+                minutemarks.add(location); // first track point of each minute
+                nextminutemark += 60;
+            }
+            sailingtime += move.dt;
+            direction = move.direction; // and update the direction
+            boatspeed = move.boatspeed;
+            rotationAnglePerSecond = move.rotationAnglePerSecond;
+        }
+    }
+
+    /**
+     * Write the mutable state of the boat - its track is not written, only
+     * its length, as the track is rebuilt when the simulation is rerun.
+     *
+     * @param out the output
+     * @throws IOException if problems
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(location.getX());
+        out.writeDouble(location.getY());
+        out.writeDouble(direction.getDegrees());
+        out.writeDouble(boatspeed);
+        out.writeDouble(rotationAnglePerSecond.getDegrees());
+        out.writeDouble(distancesailed);
+        out.writeDouble(sailingtime);
+        out.writeDouble(nextminutemark);
+        out.writeInt(track.size());
+        out.writeInt(minutemarks.size());
+    }
+
+    /**
+     * Restore the mutable state of the boat. The track is cut back to its
+     * length at the time of the snapshot (if it has not yet been sailed that
+     * far, as when loading a checkpoint, it restarts from the restored
+     * location).
+     *
+     * @param in the input
+     * @throws IOException if problems
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        location = new Location(in.readDouble(), in.readDouble());
+        direction = new Angle(in.readDouble());
+        boatspeed = in.readDouble();
+        rotationAnglePerSecond = new Angle(in.readDouble());
+        distancesailed = in.readDouble();
+        sailingtime = in.readDouble();
+        nextminutemark = in.readDouble();
+        truncate(track, in.readInt());
+        truncate(minutemarks, in.readInt());
+    }
+
+    private void truncate(List<Location> locations, int size) {
+        synchronized (locations) {
+            if (locations.size() > size) {
+                locations.subList(size, locations.size()).clear();
+            }
+        }
+    }
+
+    private BoatMove turn(double dt, Decision decision, FlowVector windflow, FlowVector waterflow, boolean markrounding) {
         Angle newdirection = decision.getAngle();
-        if (direction.absAngleDiff(newdirection).lteq(rotationAnglePerSecond)) {
-            moveBoat(newdirection, windflow, waterflow);
+        Angle rotation = new Angle(rotationAnglePerSecond.getDegrees() * dt);
+        if (direction.absAngleDiff(newdirection).getDegrees() <= rotationAnglePerSecond.getDegrees() * dt) {
             decision.setSAILON();
-            return true;
+            return moveBoat(dt, newdirection, windflow, waterflow, markrounding);
         }
-        moveBoat(direction.add(rotationAnglePerSecond.negateif(decision.isPort())), windflow, waterflow);
-        return false;
+        return moveBoat(dt, direction.add(rotation.negateif(decision.isPort())), windflow, waterflow, false);
     }
 
     /**
-     * Move the boat in the required direction.
+     * Calculate the move of the boat in the required direction.
      *
+     * The boat speed approaches the potential boat speed exponentially (the
+     * inertia being the fraction of the difference made up in one second), so
+     * the result is consistent whatever the time step.
+     *
+     * @param dt the time step (seconds)
      * @param nextdirection the required direction
+     * @param legcompleted true if this move completes a mark rounding
+     * @return the move
      */
-    void moveBoat(Angle nextdirection, SpeedPolar windflow, SpeedPolar waterflow) {
+    BoatMove moveBoat(double dt, Angle nextdirection, FlowVector windflow, FlowVector waterflow, boolean legcompleted) {
         // calculate the potential boat speed - based on wind speed and relative angle 
         double potentialBoatspeed = SpeedPolar.convertKnots2MetresPerSecond(
-                metrics.getPotentialBoatSpeed(nextdirection.absAngleDiff(windflow.getAngle()),
-                        windflow.getSpeed()));
-        boatspeed += metrics.getInertia() * (potentialBoatspeed - boatspeed);
-        // start by calculating the vector components of the boats movement
-        DistancePolar move = new DistancePolar(boatspeed, nextdirection)
-                .subtract(new DistancePolar(waterflow.getSpeedMetresPerSecond(), waterflow.getAngle()));
-        location = move.polar2Location(location); // updated position calculated
-        track.add(location); // record it in track
-        direction = nextdirection; // and update the direction
-        rotationAnglePerSecond = boatspeed < 1 ? metrics.getMaxTurningAnglePerSecond().div(2) : metrics.getMaxTurningAnglePerSecond();
+                metrics.getPotentialBoatSpeed(getAngleToWind(nextdirection, windflow), windflow.getSpeed()));
+        double inertia = 1 - Math.pow(1 - metrics.getInertia(), dt);
+        double nextboatspeed = boatspeed + inertia * (potentialBoatspeed - boatspeed);
+        // the boat's movement through the water, less the water flow (which
+        // comes from its angle)
+        double distance = nextboatspeed * dt;
+        double radians = nextdirection.getRadians();
+        double drift = SpeedPolar.convertKnots2MetresPerSecond(dt);
+        Location nextlocation = new Location(
+                location.getX() + distance * Math.sin(radians) - waterflow.u * drift,
+                location.getY() + distance * Math.cos(radians) - waterflow.v * drift);
+        return new BoatMove(dt, nextlocation, nextdirection, nextboatspeed,
+                nextboatspeed < 1 ? metrics.getMaxTurningAnglePerSecond().div(2) : metrics.getMaxTurningAnglePerSecond(),
+                true, legcompleted);
+    }
+
+    // the angle between a direction and the wind (0 to 180 degrees)
+    private double getAngleToWind(Angle boatdirection, FlowVector windflow) {
+        double degrees = Math.abs(windflow.getDegrees() - boatdirection.getDegrees());
+        return degrees > 180 ? 360 - degrees : degrees;
     }
 
     /**
@@ -229,7 +394,31 @@ public abstract class Boat {
      * @param zoom the scale factor (pixelsPerMetre)
      */
     public void draw(Graphics2D g2D, double zoom) throws IOException {
-        Angle relative = direction.angleDiff(controllersupplier.get().windflow.getFlow(location).getAngle());
+        draw(g2D, zoom, getFrame(),
+                new Angle(controllersupplier.get().windflow.getFlowDegrees(location.getX(), location.getY(), drawvector)));
+    }
+
+    /**
+     * Get the current pose of the boat, for display.
+     *
+     * @return the boat frame
+     */
+    public BoatFrame getFrame() {
+        return new BoatFrame(location, direction, track.size(), minutemarks.size());
+    }
+
+    /**
+     * Draw the Boat on the display canvas, as it was in a frame.
+     *
+     * @param g2D the 2D graphics object
+     * @param zoom the scale factor (pixelsPerMetre)
+     * @param frame the boat frame
+     * @param windangle the wind direction at the boat in the frame
+     */
+    public void draw(Graphics2D g2D, double zoom, BoatFrame frame, Angle windangle) {
+        Location location = frame.location;
+        Angle direction = frame.direction;
+        Angle relative = direction.angleDiff(windangle);
         boolean onStarboard = relative.gt(ANGLE0);
         Angle absrelative = relative.abs();
         Angle sailRotation = absrelative.lteq(new Angle(45)) ? ANGLE0 : absrelative.sub(new Angle(45)).mult(2.0 / 3);
@@ -275,13 +464,18 @@ public abstract class Boat {
         BasicStroke stroke = new BasicStroke((float) (MetresPerPixel));
         BasicStroke heavystroke = new BasicStroke((float) (MetresPerPixel * 3));
         g2D.setColor(trackcolor);
-        int count = 0;
         synchronized (track) {
-            for (Location tp : track) {
-                g2D.setStroke(count % 60 == 0 ? heavystroke : stroke);
+            g2D.setStroke(stroke);
+            for (Location tp : track.subList(0, Math.min(frame.tracksize, track.size()))) {
+                Shape s = new Line2D.Double(tp.getX(), tp.getY(), tp.getX(), tp.getY());
+                g2D.draw(s);
+            }
+        }
+        synchronized (minutemarks) {
+            g2D.setStroke(heavystroke);
+            for (Location tp : minutemarks.subList(0, Math.min(frame.minutemarkssize, minutemarks.size()))) {
                 Shape s = new Line2D.Double(tp.getX(), tp.getY(), tp.getX(), tp.getY());
                 g2D.draw(s);
-                count++;
             }
         }
     }
@@ -33,6 +33,8 @@ public class BoatFactory {
         switch (paramobj.getString("type", "MISSING")){
             case "laser2":
                 return new Laser2(controllersupplier, paramobj);
+            case "polarfile":
+                return new PolarFileBoat(controllersupplier, paramobj);
             default:
                 throw new IOException("Missing or Unknown class parameter in boat definition");
         }
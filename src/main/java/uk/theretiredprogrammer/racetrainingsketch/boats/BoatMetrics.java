@@ -73,4 +73,8 @@ public class BoatMetrics {
     public double getPotentialBoatSpeed(Angle angle, double windSpeed) {
         return performancevectors.getPotentialBoatSpeed(angle, windSpeed);
     }
+
+    public double getPotentialBoatSpeed(double degrees, double windSpeed) {
+        return performancevectors.getPotentialBoatSpeed(degrees, windSpeed);
+    }
 }
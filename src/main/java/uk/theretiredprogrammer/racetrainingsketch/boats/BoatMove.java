@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+
+/**
+ * A calculated (but not yet applied) move of a boat for one time step.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class BoatMove {
+
+    final double dt;
+    final Location location;
+    final Angle direction;
+    final double boatspeed;
+    final Angle rotationAnglePerSecond;
+    private final boolean moving;
+    private final boolean legcompleted;
+
+    BoatMove(double dt, Location location, Angle direction, double boatspeed, Angle rotationAnglePerSecond,
+            boolean moving, boolean legcompleted) {
+        this.dt = dt;
+        this.location = location;
+        this.direction = direction;
+        this.boatspeed = boatspeed;
+        this.rotationAnglePerSecond = rotationAnglePerSecond;
+        this.moving = moving;
+        this.legcompleted = legcompleted;
+    }
+
+    public boolean isMoving() {
+        return moving;
+    }
+
+    public boolean isLegCompleted() {
+        return legcompleted;
+    }
+}
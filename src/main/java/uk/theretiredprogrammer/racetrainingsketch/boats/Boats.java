@@ -17,13 +17,19 @@ package uk.theretiredprogrammer.racetrainingsketch.boats;
 
 import java.awt.Graphics2D;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
+import uk.theretiredprogrammer.racetrainingsketch.flows.Flow;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+import uk.theretiredprogrammer.racetrainingsketch.playback.BoatFrame;
+import uk.theretiredprogrammer.racetrainingsketch.playback.Frame;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Displayable;
@@ -36,24 +42,56 @@ import uk.theretiredprogrammer.racetrainingsketch.ui.Timerable;
 public class Boats implements Displayable, Timerable {
 
     private final Map<String, Boat> boats = new HashMap<>();
+    private final Map<String, JsonObject> boatsparams = new HashMap<>();
+    private final FlowVector drawvector = new FlowVector(); // the wind is looked up into this
 
     public Boats(Supplier<Controller> controllersupplier, JsonObject parsedjson) throws IOException {
+        for (JsonObject boatparams : getBoatsParams(parsedjson)) {
+            Boat boat = BoatFactory.createboatelement(controllersupplier, boatparams);
+            boats.put(boat.name, boat);
+            boatsparams.put(boat.name, boatparams);
+        }
+    }
+
+    private static List<JsonObject> getBoatsParams(JsonObject parsedjson) throws IOException {
         JsonArray boatarray = parsedjson.getJsonArray("BOATS");
         if (boatarray == null) {
             throw new IOException("Malformed Definition File - missing BOATS array");
         }
+        List<JsonObject> boatsparams = new ArrayList<>();
         for (JsonValue boatv : boatarray) {
             if (boatv.getValueType() == JsonValue.ValueType.OBJECT) {
-                JsonObject boatparams = (JsonObject) boatv;
-                Boat boat = BoatFactory.createboatelement(controllersupplier, boatparams);
-                boats.put(boat.name, boat);
+                boatsparams.add((JsonObject) boatv);
             } else {
                 throw new IOException("Malformed Definition File - BOATS array contains items other that boat objects");
             }
         }
-        
+        return boatsparams;
     }
-    
+
+    /**
+     * Create the boats for a changed definition. Boats whose definition is
+     * unchanged are taken from the previous boats, and other boats are
+     * created afresh; the previous boats are not changed, so they remain in
+     * use if the definition is not valid.
+     *
+     * @param previous the previous boats
+     * @param controllersupplier the controller supplier
+     * @param parsedjson the changed definition
+     * @throws IOException if problems with the definition
+     */
+    public Boats(Boats previous, Supplier<Controller> controllersupplier, JsonObject parsedjson) throws IOException {
+        for (JsonObject boatparams : getBoatsParams(parsedjson)) {
+            String name = boatparams.getString("name", "");
+            Boat boat = previous.boats.get(name);
+            if (boat == null || !boatparams.equals(previous.boatsparams.get(name))) {
+                boat = BoatFactory.createboatelement(controllersupplier, boatparams);
+            }
+            boats.put(boat.name, boat);
+            boatsparams.put(boat.name, boatparams);
+        }
+    }
+
     public Boat getBoat(String name){
         return boats.get(name);
     }
@@ -63,7 +101,7 @@ public class Boats implements Displayable, Timerable {
     }
 
     @Override
-    public void timerAdvance(int simulationtime, TimerLog timerlog ) throws IOException {
+    public void timerAdvance(double simulationtime, double dt, TimerLog timerlog) throws IOException {
     }
 
     @Override
@@ -72,4 +110,21 @@ public class Boats implements Displayable, Timerable {
             boat.draw(g2D, zoom);
         }
     }
+
+    /**
+     * Draw the boats as they were in a frame.
+     *
+     * @param g2D the 2D graphics object
+     * @param zoom the scale factor (pixels/metre)
+     * @param frame the frame
+     * @param windflow the wind flow
+     * @throws IOException if problems
+     */
+    public void draw(Graphics2D g2D, double zoom, Frame frame, Flow windflow) throws IOException {
+        for (var boat : boats.values()) {
+            BoatFrame boatframe = frame.getBoatFrame(boat.name);
+            windflow.getFlow(boatframe.location.getX(), boatframe.location.getY(), frame.windframe, drawvector);
+            boat.draw(g2D, zoom, boatframe, drawvector.getAngle());
+        }
+    }
 }
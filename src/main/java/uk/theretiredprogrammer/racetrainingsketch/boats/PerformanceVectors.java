@@ -23,21 +23,83 @@ import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
  */
 public class PerformanceVectors {
 
+    // the dense table is indexed directly by relative wind angle and wind speed
+    private final static double ANGLESTEP = 0.5; // degrees
+    private final static double SPEEDSTEP = 0.1; // knots
+    private final static int ANGLESTEPS = (int) Math.round(180 / ANGLESTEP);
+
     private final Angle[] windAngleData;
     private final double[] windSpeedData;
     private final double[][] boatSpeedData;
+    private final int speedsteps;
+    private final double[] boatspeeds; // [speed step][angle step]
 
     public PerformanceVectors(double[][] boatSpeedData, Angle[] windAngleData, double[] windSpeedData) {
         this.boatSpeedData = boatSpeedData;
         this.windAngleData = windAngleData;
         this.windSpeedData = windSpeedData;
+        // the last wind speed is a backstop, repeating the highest defined
+        // vector, so the dense table need only go up to the highest defined speed
+        speedsteps = Math.max(1, (int) Math.ceil(windSpeedData[windSpeedData.length - 2] / SPEEDSTEP));
+        boatspeeds = new double[(speedsteps + 1) * (ANGLESTEPS + 1)];
+        int index = 0;
+        for (int i = 0; i <= speedsteps; i++) {
+            for (int j = 0; j <= ANGLESTEPS; j++) {
+                boatspeeds[index++] = getTabulatedBoatSpeed(new Angle(j * ANGLESTEP), i * SPEEDSTEP);
+            }
+        }
     }
 
+    /**
+     * Get the potential boat speed, by bilinear interpolation in the dense
+     * table.
+     *
+     * @param angle the angle between the boat's direction and the wind (0 to
+     * 180 degrees)
+     * @param windSpeed the wind speed (knots)
+     * @return the potential boat speed (knots)
+     */
     double getPotentialBoatSpeed(Angle angle, double windSpeed) {
+        return getPotentialBoatSpeed(angle.getDegrees(), windSpeed);
+    }
+
+    /**
+     * Get the potential boat speed, by bilinear interpolation in the dense
+     * table.
+     *
+     * @param degrees the angle between the boat's direction and the wind (0
+     * to 180 degrees)
+     * @param windSpeed the wind speed (knots)
+     * @return the potential boat speed (knots)
+     */
+    double getPotentialBoatSpeed(double degrees, double windSpeed) {
+        double a = Math.min(180, Math.max(0, degrees)) / ANGLESTEP;
+        int angleindex = Math.min((int) a, ANGLESTEPS - 1);
+        double anglefraction = a - angleindex;
+        double s = Math.min(speedsteps, Math.max(0, windSpeed / SPEEDSTEP));
+        int speedindex = Math.min((int) s, speedsteps - 1);
+        double speedfraction = s - speedindex;
+        int index = speedindex * (ANGLESTEPS + 1) + angleindex;
+        double lower = boatspeeds[index] + anglefraction * (boatspeeds[index + 1] - boatspeeds[index]);
+        index += ANGLESTEPS + 1;
+        double upper = boatspeeds[index] + anglefraction * (boatspeeds[index + 1] - boatspeeds[index]);
+        return lower + speedfraction * (upper - lower);
+    }
+
+    /**
+     * Get the potential boat speed, by searching the defined vectors. This is
+     * used to fill the dense table.
+     *
+     * @param angle the angle between the boat's direction and the wind
+     * @param windSpeed the wind speed (knots)
+     * @return the potential boat speed (knots)
+     */
+    double getTabulatedBoatSpeed(Angle angle, double windSpeed) {
         // find the lookup point for wind direction
+        // (compared in degrees, as gteq() would wrap round at 180)
         int angleindex = -1;
         for (Angle windangldata : windAngleData) {
-            if (windangldata.gteq(angle)) {
+            if (windangldata.getDegrees() >= angle.getDegrees()) {
                 // found higher
                 break;
             }
@@ -33,6 +33,14 @@ public class PerformanceVectorsBuilder {
     private int anglescount = 0;
 
     public PerformanceVectorsBuilder defineAngles(int[] inputangles) throws IOException {
+        double[] doubleangles = new double[inputangles.length];
+        for (int i = 0; i < inputangles.length; i++) {
+            doubleangles[i] = inputangles[i];
+        }
+        return defineAngles(doubleangles);
+    }
+
+    public PerformanceVectorsBuilder defineAngles(double[] inputangles) throws IOException {
         if (anglescount != 0) {
             throw new IOException("PerformanceVectorsBuilder: duplicate angles definition");
         }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.IntegerParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.ListOf;
+
+/**
+ * A boat class's metrics, defined in a polar file.
+ *
+ * A tab separated polar file has a heading line of wind speeds (knots), after
+ * a first cell which is ignored (eg "twa/tws"), then a line for each relative
+ * wind angle (degrees), starting with the angle and followed by the boat
+ * speeds (knots) at each wind speed. The other metrics take their default
+ * values.
+ *
+ * A JSON polar file (extension .json) holds the metrics - length, width,
+ * inertia, maxturninganglepersecond, upwindrelative and downwindrelative -
+ * with the angles array of relative wind angles and the vectors array, each
+ * with a windspeed and the speeds array of boat speeds at the angles.
+ *
+ * In both formats the angles must be in ascending order, from 0 to 180
+ * degrees, ending at 180.
+ *
+ * The metrics are shared by all boats using the file, unless it has been
+ * changed since it was loaded.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class PolarFile {
+
+    private final static Map<Path, PolarFile> LOADEDFILES = new HashMap<>();
+
+    /**
+     * Get the metrics defined in a polar file.
+     *
+     * @param path the file path
+     * @return the metrics
+     * @throws IOException if problems
+     */
+    static synchronized BoatMetrics load(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("Malformed Definition file - polar file not found " + path);
+        }
+        Path key = path.toRealPath();
+        long modified = Files.getLastModifiedTime(key).toMillis();
+        PolarFile polarfile = LOADEDFILES.get(key);
+        if (polarfile == null || polarfile.modified != modified) {
+            polarfile = new PolarFile(modified, key.toString().toLowerCase().endsWith(".json")
+                    ? readJson(key) : readTabSeparated(key));
+            LOADEDFILES.put(key, polarfile);
+        }
+        return polarfile.metrics;
+    }
+
+    private final long modified;
+    private final BoatMetrics metrics;
+
+    private PolarFile(long modified, BoatMetrics metrics) {
+        this.modified = modified;
+        this.metrics = metrics;
+    }
+
+    private static BoatMetrics readTabSeparated(Path path) throws IOException {
+        double[] windspeeds = null;
+        List<Double> angles = new ArrayList<>();
+        List<double[]> rows = new ArrayList<>();
+        try ( BufferedReader rdr = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = rdr.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] cells = line.trim().split("\t");
+                double[] values = parseNumbers(path, cells, windspeeds == null);
+                if (windspeeds == null) {
+                    windspeeds = values;
+                } else {
+                    if (values.length != windspeeds.length + 1) {
+                        throw new IOException("Malformed polar file - wrong number of speeds in " + path + ": " + line);
+                    }
+                    angles.add(values[0]);
+                    double[] row = new double[windspeeds.length];
+                    System.arraycopy(values, 1, row, 0, windspeeds.length);
+                    rows.add(row);
+                }
+            }
+        }
+        if (windspeeds == null || rows.isEmpty()) {
+            throw new IOException("Malformed polar file - no speeds in " + path);
+        }
+        // transpose to a vector of boat speeds for each wind speed
+        PerformanceVectorsBuilder builder = new PerformanceVectorsBuilder().defineAngles(toAngles(path, angles));
+        for (int i = 0; i < windspeeds.length; i++) {
+            double[] vector = new double[rows.size()];
+            for (int j = 0; j < rows.size(); j++) {
+                vector[j] = rows.get(j)[i];
+            }
+            builder.vector(toWindSpeed(path, windspeeds[i]), vector);
+        }
+        return new BoatMetricsBuilder().performancevectors(builder.build()).build();
+    }
+
+    // the first cell of the heading line is ignored
+    private static double[] parseNumbers(Path path, String[] cells, boolean heading) throws IOException {
+        int first = heading ? 1 : 0;
+        double[] values = new double[cells.length - first];
+        for (int i = first; i < cells.length; i++) {
+            try {
+                values[i - first] = Double.parseDouble(cells[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new IOException("Malformed polar file - number expected in " + path + ": " + cells[i]);
+            }
+        }
+        return values;
+    }
+
+    private static BoatMetrics readJson(Path path) throws IOException {
+        JsonObject parsedjson;
+        try ( JsonReader rdr = Json.createReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            parsedjson = rdr.readObject();
+        } catch (JsonException ex) {
+            throw new IOException("Malformed polar file - " + path + ": " + ex.getLocalizedMessage());
+        }
+        List<Double> angles = ListOf.parse(parsedjson, "angles", PolarFile::toDouble).orElseThrow(
+                () -> new IOException("Malformed polar file - missing angles in " + path));
+        PerformanceVectorsBuilder builder = new PerformanceVectorsBuilder().defineAngles(toAngles(path, angles));
+        List<JsonObject> vectors = ListOf.parse(parsedjson, "vectors",
+                (v) -> v.getValueType() == JsonValue.ValueType.OBJECT ? (JsonObject) v : null).orElseThrow(
+                () -> new IOException("Malformed polar file - missing vectors in " + path));
+        for (JsonObject vector : vectors) {
+            double windspeed = DoubleParser.parse(vector, "windspeed").orElseThrow(
+                    () -> new IOException("Malformed polar file - vector missing windspeed in " + path));
+            List<Double> speeds = ListOf.parse(vector, "speeds", PolarFile::toDouble).orElseThrow(
+                    () -> new IOException("Malformed polar file - vector missing speeds in " + path));
+            builder.vector(toWindSpeed(path, windspeed), speeds.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+        BoatMetricsBuilder metricsbuilder = new BoatMetricsBuilder().performancevectors(builder.build());
+        DoubleParser.parse(parsedjson, "length").ifPresent((v) -> metricsbuilder.length(v));
+        DoubleParser.parse(parsedjson, "width").ifPresent((v) -> metricsbuilder.width(v));
+        DoubleParser.parse(parsedjson, "inertia").ifPresent((v) -> metricsbuilder.inertia(v));
+        IntegerParser.parse(parsedjson, "maxturninganglepersecond").ifPresent((v) -> metricsbuilder.maxTurningAnglePerSecond(v));
+        IntegerParser.parse(parsedjson, "upwindrelative").ifPresent((v) -> metricsbuilder.upwindrelative(v));
+        IntegerParser.parse(parsedjson, "downwindrelative").ifPresent((v) -> metricsbuilder.downwindrelative(v));
+        return metricsbuilder.build();
+    }
+
+    private static Double toDouble(JsonValue value) {
+        return value.getValueType() == JsonValue.ValueType.NUMBER ? ((JsonNumber) value).doubleValue() : null;
+    }
+
+    private static double[] toAngles(Path path, List<Double> angles) throws IOException {
+        double[] result = new double[angles.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = angles.get(i);
+            if (result[i] < 0 || (i > 0 && result[i] <= result[i - 1])) {
+                throw new IOException("Malformed polar file - angles must be in ascending order from 0 in " + path);
+            }
+        }
+        if (result.length < 2 || result[result.length - 1] != 180) {
+            throw new IOException("Malformed polar file - angles must end at 180 in " + path);
+        }
+        return result;
+    }
+
+    private static double toWindSpeed(Path path, double windspeed) throws IOException {
+        if (windspeed <= 0) {
+            throw new IOException("Malformed polar file - wind speeds must be greater than zero in " + path);
+        }
+        return windspeed;
+    }
+}
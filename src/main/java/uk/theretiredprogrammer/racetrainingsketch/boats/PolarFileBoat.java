@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.StringParser;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * A boat whose class is defined by a polar file (see PolarFile) - the file
+ * parameter, relative to the definition file.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class PolarFileBoat extends Boat {
+
+    private static BoatMetrics getMetrics(Supplier<Controller> controllersupplier, JsonObject paramsobj) throws IOException {
+        String file = StringParser.parse(paramsobj, "file").orElseThrow(
+                () -> new IOException("Malformed Definition file - polarfile boat missing file"));
+        return PolarFile.load(controllersupplier.get().resolvePath(file));
+    }
+
+    public PolarFileBoat(Supplier<Controller> controllersupplier, JsonObject paramsobj) throws IOException {
+        super(controllersupplier, paramsobj, getMetrics(controllersupplier, paramsobj));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
+import uk.theretiredprogrammer.racetrainingsketch.flows.Flow;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+
+/**
+ * The wind shadow of the boats - each boat casts a cone of disturbed air
+ * downwind of it, which reduces the speed of the wind, and bends it away from
+ * the centre of the cone, for other boats inside it. The effect is strongest
+ * close behind the boat and on the centre line of the cone, and fades to
+ * nothing at its edges.
+ *
+ * The shadow is defined by the WIND-SHADOW object: length (metres, default
+ * 30), angle (the half angle of the cone, degrees, default 15), speedloss
+ * (the fraction of the wind speed lost at the strongest point, default 0.3)
+ * and bend (the change of wind direction at the strongest point, degrees,
+ * default 5).
+ *
+ * The boat positions are held in a spatial hash (with buckets as wide as the
+ * reach of a shadow - the distance to the far corners of its cone), built at
+ * the start of each time step, so finding the boats which may shadow a boat
+ * only looks at the boats in the nine buckets around it.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class WindShadow {
+
+    private final static int MAXBUCKETS = 1024;
+
+    /**
+     * Create the wind shadow, if one is defined.
+     *
+     * @param parsedjson the parsed definition file
+     * @return the wind shadow, or null if not defined
+     * @throws IOException if problems
+     */
+    public static WindShadow create(JsonObject parsedjson) throws IOException {
+        JsonObject paramsobj = parsedjson.getJsonObject("WIND-SHADOW");
+        return paramsobj == null ? null : new WindShadow(paramsobj);
+    }
+
+    private final double length;
+    private final double reach; // the greatest distance from a boat within its shadow
+    private final double tanangle;
+    private final double speedloss;
+    private final double bend;
+    //
+    private int count;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] downwindx = new double[0]; // unit vector downwind of each boat
+    private double[] downwindy = new double[0];
+    private final Map<Boat, Integer> boatindex = new IdentityHashMap<>();
+    private final FlowVector windvector = new FlowVector();
+    private double minx;
+    private double miny;
+    private int bucketsx;
+    private int bucketsy;
+    private double bucketsize;
+    private int[] bucketstart = new int[1];
+    private int[] bucketboats = new int[0];
+
+    WindShadow(JsonObject paramsobj) throws IOException {
+        length = DoubleParser.parse(paramsobj, "length").orElse(30.0);
+        double angle = DoubleParser.parse(paramsobj, "angle").orElse(15.0);
+        speedloss = DoubleParser.parse(paramsobj, "speedloss").orElse(0.3);
+        bend = DoubleParser.parse(paramsobj, "bend").orElse(5.0);
+        if (length <= 0 || angle <= 0 || angle >= 90) {
+            throw new IOException("Malformed Definition file - WIND-SHADOW length must be greater than zero and angle between 0 and 90");
+        }
+        if (speedloss < 0 || speedloss > 1) {
+            throw new IOException("Malformed Definition file - WIND-SHADOW speedloss must be between 0 and 1");
+        }
+        tanangle = Math.tan(Math.toRadians(angle));
+        reach = length / Math.cos(Math.toRadians(angle));
+    }
+
+    /**
+     * Update the shadows for the boats' positions at the start of a time
+     * step.
+     *
+     * @param boats the boats
+     * @param windflow the wind flow
+     * @throws IOException if problems
+     */
+    public void update(Collection<Boat> boats, Flow windflow) throws IOException {
+        int n = boats.size();
+        double[] bx = new double[n];
+        double[] by = new double[n];
+        double[] windangle = new double[n];
+        boatindex.clear();
+        int i = 0;
+        for (Boat boat : boats) {
+            bx[i] = boat.location.getX();
+            by[i] = boat.location.getY();
+            windangle[i] = Math.toRadians(windflow.getFlowDegrees(bx[i], by[i], windvector));
+            boatindex.put(boat, i++);
+        }
+        update(bx, by, windangle);
+    }
+
+    /**
+     * Update the shadows.
+     *
+     * @param bx the x coordinates of the boats
+     * @param by the y coordinates of the boats
+     * @param windangle the direction the wind comes from at each boat
+     * (radians)
+     */
+    void update(double[] bx, double[] by, double[] windangle) {
+        count = bx.length;
+        x = bx;
+        y = by;
+        downwindx = new double[count];
+        downwindy = new double[count];
+        minx = Double.MAX_VALUE;
+        miny = Double.MAX_VALUE;
+        double maxx = -Double.MAX_VALUE;
+        double maxy = -Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            // the air moves away from the direction the wind comes from
+            downwindx[i] = -Math.sin(windangle[i]);
+            downwindy[i] = -Math.cos(windangle[i]);
+            minx = Math.min(minx, x[i]);
+            miny = Math.min(miny, y[i]);
+            maxx = Math.max(maxx, x[i]);
+            maxy = Math.max(maxy, y[i]);
+        }
+        bucketsize = Math.max(reach, Math.max(maxx - minx, maxy - miny) / MAXBUCKETS);
+        bucketsx = count == 0 ? 1 : (int) Math.floor((maxx - minx) / bucketsize) + 1;
+        bucketsy = count == 0 ? 1 : (int) Math.floor((maxy - miny) / bucketsize) + 1;
+        // counting sort of the boats into their buckets
+        bucketstart = new int[bucketsx * bucketsy + 1];
+        bucketboats = new int[count];
+        int[] bucket = new int[count];
+        for (int i = 0; i < count; i++) {
+            bucket[i] = getBucketY(y[i]) * bucketsx + getBucketX(x[i]);
+            bucketstart[bucket[i] + 1]++;
+        }
+        for (int b = 0; b < bucketsx * bucketsy; b++) {
+            bucketstart[b + 1] += bucketstart[b];
+        }
+        int[] next = bucketstart.clone();
+        for (int i = 0; i < count; i++) {
+            bucketboats[next[bucket[i]]++] = i;
+        }
+    }
+
+    private int getBucketX(double px) {
+        return Math.max(0, Math.min(bucketsx - 1, (int) Math.floor((px - minx) / bucketsize)));
+    }
+
+    private int getBucketY(double py) {
+        return Math.max(0, Math.min(bucketsy - 1, (int) Math.floor((py - miny) / bucketsize)));
+    }
+
+    /**
+     * Apply the shadows of the other boats to the wind at a boat.
+     *
+     * @param boat the boat
+     * @param wind the wind at the boat, without any shadow - changed to the
+     * wind in the shadows
+     */
+    public void apply(Boat boat, FlowVector wind) {
+        Integer index = boatindex.get(boat);
+        if (index != null) {
+            apply(index, boat.location.getX(), boat.location.getY(), wind);
+        }
+    }
+
+    /**
+     * Apply the shadows of the other boats to the wind at a boat.
+     *
+     * @param index the boat's index (which casts no shadow on itself)
+     * @param px the x coordinate of the boat
+     * @param py the y coordinate of the boat
+     * @param wind the wind at the boat, without any shadow - changed to the
+     * wind in the shadows
+     */
+    void apply(int index, double px, double py, FlowVector wind) {
+        double factor = 1;
+        double bendangle = 0;
+        int bx = getBucketX(px);
+        int by = getBucketY(py);
+        for (int j = Math.max(0, by - 1); j <= Math.min(bucketsy - 1, by + 1); j++) {
+            for (int i = Math.max(0, bx - 1); i <= Math.min(bucketsx - 1, bx + 1); i++) {
+                int b = j * bucketsx + i;
+                for (int k = bucketstart[b]; k < bucketstart[b + 1]; k++) {
+                    int other = bucketboats[k];
+                    if (other == index) {
+                        continue;
+                    }
+                    double dx = px - x[other];
+                    double dy = py - y[other];
+                    double along = dx * downwindx[other] + dy * downwindy[other];
+                    if (along <= 0 || along >= length) {
+                        continue;
+                    }
+                    // positive if clockwise of the centre line
+                    double across = dx * downwindy[other] - dy * downwindx[other];
+                    double halfwidth = along * tanangle;
+                    if (Math.abs(across) >= halfwidth) {
+                        continue;
+                    }
+                    double weight = (1 - along / length) * (1 - Math.abs(across) / halfwidth);
+                    factor *= 1 - speedloss * weight;
+                    bendangle += Math.signum(across) * bend * weight;
+                }
+            }
+        }
+        // slow the wind, and rotate it clockwise (an increase in its angle)
+        double radians = Math.toRadians(bendangle);
+        double sin = Math.sin(radians) * factor;
+        double cos = Math.cos(radians) * factor;
+        wind.set(wind.u * cos + wind.v * sin, wind.v * cos - wind.u * sin);
+    }
+}
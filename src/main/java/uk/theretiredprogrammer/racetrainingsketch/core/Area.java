@@ -43,8 +43,26 @@ public class Area {
         return height;
     }
     
+    /**
+     * Get the smallest area which includes this area and another.
+     *
+     * @param other the other area
+     * @return the combined area
+     */
+    public Area union(Area other) {
+        double x0 = Math.min(bottomleft.getX(), other.bottomleft.getX());
+        double y0 = Math.min(bottomleft.getY(), other.bottomleft.getY());
+        double x1 = Math.max(bottomleft.getX() + width, other.bottomleft.getX() + other.width);
+        double y1 = Math.max(bottomleft.getY() + height, other.bottomleft.getY() + other.height);
+        return new Area(new Location(x0, y0), x1 - x0, y1 - y0);
+    }
+
     public boolean isWithinArea(Location location) {
-        return location.getX() >= bottomleft.getX() && location.getX() <= bottomleft.getX() + width
-                && location.getY() >= bottomleft.getY() && location.getY() <= bottomleft.getY() + height;
+        return isWithinArea(location.getX(), location.getY());
+    }
+
+    public boolean isWithinArea(double x, double y) {
+        return x >= bottomleft.getX() && x <= bottomleft.getX() + width
+                && y >= bottomleft.getY() && y <= bottomleft.getY() + height;
     }
 }
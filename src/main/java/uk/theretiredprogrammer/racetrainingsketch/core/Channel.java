@@ -88,6 +88,21 @@ public class Channel {
         return true; // if no channel then OK
     }
 
+    /**
+     * Get the distance from the location to the nearest edge of the channel.
+     *
+     * @param location the location
+     * @return the distance, zero if outside the channel, or MAX_VALUE if no
+     * channel
+     */
+    public double getDistanceToEdge(Location location) {
+        if (enabled) {
+            double ew = location.getX();
+            return isInchannel(location) ? Math.min(ew - west, east - ew) : 0;
+        }
+        return Double.MAX_VALUE;
+    }
+
     public double getInneroffset(Location mark) {
         double mx = mark.getX();
         return mx < west ? west - mx : (mx > east ? mx - east : 0);
@@ -75,6 +75,11 @@ public class Gradient {
 
     private final String type;
     private final double[] speeds;
+    // the table of speeds, compiled for an area
+    private Angle direction;
+    private boolean acrossx; // true if the speeds change in the x direction
+    private double origin;
+    private double scale; // table entries per metre
 
     public Gradient() {
         this.type = "north";
@@ -86,8 +91,53 @@ public class Gradient {
         this.speeds = speeds;
     }
 
+    /**
+     * Compile the gradient into a table of speeds for an area. The speeds are
+     * equally spaced from the west to the east edge of the area (for a flow
+     * from the north or south) or from the south to the north edge (for a
+     * flow from the east or west).
+     *
+     * @param area the area
+     * @throws IOException if the gradient direction is not legal
+     */
+    public void compile(Area area) throws IOException {
+        direction = getMeanFlowDirection();
+        acrossx = type.equals("north") || type.equals("south");
+        origin = acrossx ? area.getBottomleft().getX() : area.getBottomleft().getY();
+        double size = acrossx ? area.getWidth() : area.getHeight();
+        scale = speeds.length > 1 && size > 0 ? (speeds.length - 1) / size : 0;
+    }
+
+    /**
+     * Get the flow at a location, interpolated from the compiled table.
+     *
+     * @param pos the location
+     * @return the flow, or null if the gradient has not been compiled
+     */
     public SpeedPolar getFlow(Location pos) {
-        return null;  //TODO - getFlow not yet implemented - return null
+        return direction == null ? null : new SpeedPolar(getSpeed(pos.getX(), pos.getY()), direction);
+    }
+
+    /**
+     * Get the speed at a location, interpolated from the compiled table.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the speed
+     */
+    public double getSpeed(double x, double y) {
+        switch (speeds.length) {
+            case 0:
+                return 0;
+            case 1:
+                return speeds[0];
+            default:
+                double position = ((acrossx ? x : y) - origin) * scale;
+                position = Math.max(0, Math.min(speeds.length - 1, position));
+                int i = Math.min((int) position, speeds.length - 2);
+                double fraction = position - i;
+                return speeds[i] + (speeds[i + 1] - speeds[i]) * fraction;
+        }
     }
 
     public Angle getMeanFlowDirection() throws IOException {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.core;
+
+/**
+ * The mean of a set of angles - the direction of the sum of their unit
+ * vectors.
+ *
+ * Angles can be added as vectors (x is magnitude * sin(angle) and y is
+ * magnitude * cos(angle)); a zero vector has no direction, so is not counted.
+ * An angle added with a weight of -1 removes an angle added earlier.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class MeanAngle {
+
+    private double x = 0;
+    private double y = 0;
+
+    public MeanAngle() {
+    }
+
+    public MeanAngle(MeanAngle mean) {
+        this.x = mean.x;
+        this.y = mean.y;
+    }
+
+    public void add(Angle angle) {
+        double r = angle.getRadians();
+        x += Math.sin(r);
+        y += Math.cos(r);
+    }
+
+    public void add(double vx, double vy, double weight) {
+        double magnitude = Math.sqrt(vx * vx + vy * vy);
+        if (magnitude > 0) {
+            x += weight * vx / magnitude;
+            y += weight * vy / magnitude;
+        }
+    }
+
+    public void add(MeanAngle mean) {
+        x += mean.x;
+        y += mean.y;
+    }
+
+    public Angle getMean() {
+        return new Angle(Math.toDegrees(Math.atan2(x, y)));
+    }
+}
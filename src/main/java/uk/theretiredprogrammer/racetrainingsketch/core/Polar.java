@@ -73,15 +73,12 @@ abstract class Polar<P extends Polar> {
     }
     
     public static Angle meanAngle(Polar[][] array) {
-        double x = 0;
-        double y = 0;
+        MeanAngle mean = new MeanAngle();
         for (Polar[] column : array) {
             for (Polar cell : column) {
-                double r = cell.angle.getRadians();
-                x += Math.sin(r);
-                y += Math.cos(r);
+                mean.add(cell.angle);
             }
         }
-        return new Angle(Math.toDegrees(Math.atan2(x, y)));
+        return mean.getMean();
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.core;
+
+/**
+ * A seeded source of random numbers, for a single simulation (or part of
+ * one).
+ *
+ * Each source is owned by a single simulation and is not shared between
+ * threads, so there is no contention when simulations run in parallel, and a
+ * simulation's random behaviour is completely determined by its seed.
+ *
+ * The generator is the SplitMix64 algorithm (as used by SplittableRandom, and
+ * giving the same sequence), implemented here so that its state can be saved
+ * in a snapshot and restored.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class RandomSource {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private final long seed;
+    private long state;
+
+    public RandomSource(long seed) {
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the current state of the generator.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restore the generator to a previously saved state.
+     *
+     * @param state the state
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Create an independent source, seeded from this source, for use by a
+     * component of the simulation.
+     *
+     * @return the new source
+     */
+    public RandomSource split() {
+        return new RandomSource(nextLong());
+    }
+
+    /**
+     * Create an independent source, for a numbered stream, from the seed of
+     * this source - without drawing from it, so the new source is the same
+     * however far this source has advanced.
+     *
+     * @param stream the stream number
+     * @return the new source
+     */
+    public RandomSource derive(long stream) {
+        return new RandomSource(new RandomSource(seed ^ (stream * GOLDEN_GAMMA)).nextLong());
+    }
+
+    /**
+     * Create an independent source, for a named stream, from the seed of this
+     * source - so the new source depends only on the seed and the name, and
+     * not on the order in which the sources are created.
+     *
+     * @param stream the stream name
+     * @return the new source
+     */
+    public RandomSource derive(String stream) {
+        long hash = 0xcbf29ce484222325L; // FNV-1a
+        for (int i = 0; i < stream.length(); i++) {
+            hash = (hash ^ stream.charAt(i)) * 0x100000001b3L;
+        }
+        return derive(hash);
+    }
+}
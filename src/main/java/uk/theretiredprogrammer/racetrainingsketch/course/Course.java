@@ -28,6 +28,9 @@ import javax.json.JsonValue;
 import uk.theretiredprogrammer.racetrainingsketch.core.ListOf;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.core.LegValue;
+import uk.theretiredprogrammer.racetrainingsketch.flows.Flow;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+import uk.theretiredprogrammer.racetrainingsketch.playback.FlowFrame;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Displayable;
 
@@ -40,6 +43,7 @@ public class Course implements Displayable {
 
     private final Leg firstcourseleg;
     private final Map<String, Mark> marks = new HashMap<>();
+    private final FlowVector drawvector = new FlowVector(); // the wind is looked up into this
 
     public Course(Supplier<Controller> controllersupplier, JsonObject parsedjson) throws IOException {
         JsonArray markarray = parsedjson.getJsonArray("MARKS");
@@ -85,4 +89,20 @@ public class Course implements Displayable {
             mark.draw(g2D, zoom);
         }
     }
+
+    /**
+     * Draw the course, with the wind as it was in a frame.
+     *
+     * @param g2D the 2D graphics object
+     * @param zoom the scale factor (pixels/metre)
+     * @param windflow the wind flow
+     * @param windframe the wind flow frame
+     * @throws IOException if problems
+     */
+    public void draw(Graphics2D g2D, double zoom, Flow windflow, FlowFrame windframe) throws IOException {
+        for (Mark mark : marks.values()) {
+            windflow.getFlow(mark.location.getX(), mark.location.getY(), windframe, drawvector);
+            mark.draw(g2D, zoom, drawvector.getAngle());
+        }
+    }
 }
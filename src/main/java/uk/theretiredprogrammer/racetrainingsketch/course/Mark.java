@@ -31,6 +31,7 @@ import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
 import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.DistancePolar;
 import uk.theretiredprogrammer.racetrainingsketch.core.StringParser;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
@@ -71,12 +72,22 @@ public class Mark {
         color = ColorParser.parse(paramsobj, "colour").orElse(Color.red);
     }
 
+    private final FlowVector drawvector = new FlowVector(); // the wind is looked up into this
     private final static Angle WINDWARDLAYLINEANGLE = new Angle(135);
     private final static Angle LEEWARDLAYLINEANGLE = new Angle(45);
 
     public void draw(Graphics2D g2D, double zoom) throws IOException {
-        Controller controller = controllersupplier.get();
-        Angle windAngle = controller.windflow.getFlow(location).getAngle();
+        draw(g2D, zoom, new Angle(controllersupplier.get().windflow.getFlowDegrees(location.getX(), location.getY(), drawvector)));
+    }
+
+    /**
+     * Draw the mark, with its laylines for a given wind direction.
+     *
+     * @param g2D the 2D graphics object
+     * @param zoom the scale factor (pixels/metre)
+     * @param windAngle the wind direction at the mark
+     */
+    public void draw(Graphics2D g2D, double zoom, Angle windAngle) {
         double radius = zoom > 6
                 ? SIZE / 2 * zoom // if it will be visible then draw circle to scale
                 : 3; // create visible object
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import java.util.Arrays;
+
+/**
+ * A distribution of values collected over the runs of an ensemble.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class Distribution {
+
+    private double[] values = new double[16];
+    private int count = 0;
+    private double sum = 0;
+    private boolean sorted = true;
+
+    void add(double value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = value;
+        sum += value;
+        sorted = false;
+    }
+
+    private void sort() {
+        if (!sorted) {
+            Arrays.sort(values, 0, count);
+            sorted = true;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double getMin() {
+        return getPercentile(0);
+    }
+
+    public double getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * Get a percentile of the distribution, interpolating between the
+     * neighbouring values.
+     *
+     * @param percent the percentile required (0 to 100)
+     * @return the value at that percentile
+     */
+    public double getPercentile(double percent) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        sort();
+        double rank = Math.max(0, Math.min(100, percent)) / 100 * (count - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return values[lower] + (values[upper] - values[lower]) * (rank - lower);
+    }
+
+    /**
+     * Get a histogram of the distribution, using equal width bins between the
+     * minimum and maximum values.
+     *
+     * @param bins the number of bins
+     * @return the count of values in each bin
+     */
+    public int[] getHistogram(int bins) {
+        int[] histogram = new int[bins];
+        if (count == 0) {
+            return histogram;
+        }
+        double min = getMin();
+        double width = (getMax() - min) / bins;
+        for (int i = 0; i < count; i++) {
+            int bin = width == 0 ? 0 : (int) ((values[i] - min) / width);
+            histogram[Math.min(bin, bins - 1)]++;
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.openide.windows.IOProvider;
+import org.openide.windows.InputOutput;
+import org.openide.windows.OutputWriter;
+import uk.theretiredprogrammer.racetrainingsketch.strategy.LegSplit;
+
+/**
+ * The combined results of all runs of an ensemble, by boat.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class EnsembleResults {
+
+    private static final int HISTOGRAMBINS = 10;
+    private static final int HISTOGRAMWIDTH = 50;
+
+    public final long seed;
+    public final int runs;
+    private long elapsednanos;
+    private final Map<String, BoatResults> boatresults = new TreeMap<>();
+
+    EnsembleResults(long seed, int runs) {
+        this.seed = seed;
+        this.runs = runs;
+    }
+
+    void add(RunResult run) {
+        double winningtime = run.getWinningTime();
+        for (String name : run.legsplits.keySet()) {
+            BoatResults results = boatresults.computeIfAbsent(name, (n) -> new BoatResults());
+            List<LegSplit> splits = run.legsplits.get(name);
+            double legstart = 0;
+            for (int i = 0; i < splits.size(); i++) {
+                if (results.legtimes.size() == i) {
+                    results.legtimes.add(new Distribution());
+                }
+                results.legtimes.get(i).add(splits.get(i).time - legstart);
+                legstart = splits.get(i).time;
+            }
+            if (run.finished.get(name)) {
+                double finishtime = run.getFinishTime(name);
+                results.finishtimes.add(finishtime);
+                results.distances.add(splits.get(splits.size() - 1).distancesailed);
+                if (finishtime == winningtime) {
+                    results.wins++;
+                }
+            }
+        }
+    }
+
+    void setElapsedNanos(long elapsednanos) {
+        this.elapsednanos = elapsednanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsednanos;
+    }
+
+    public Set<String> getBoatNames() {
+        return boatresults.keySet();
+    }
+
+    public BoatResults getBoatResults(String name) {
+        return boatresults.get(name);
+    }
+
+    /**
+     * Get the percentage of runs in which the boat was first to finish (a
+     * tied first place counts as a win for each of the tied boats).
+     *
+     * @param name the boat name
+     * @return the percentage of runs won
+     */
+    public double getWinPercentage(String name) {
+        return runs == 0 ? 0 : boatresults.get(name).wins * 100.0 / runs;
+    }
+
+    public void write2output(String title) {
+        InputOutput io = IOProvider.getDefault().getIO(title, true);
+        io.select();
+        try ( OutputWriter msg = io.getOut()) {
+            msg.println(runs + " runs (seed " + seed + ") in " + elapsednanos / 1000000 + " ms");
+            for (String name : boatresults.keySet()) {
+                BoatResults results = boatresults.get(name);
+                msg.println();
+                msg.println(name + ": won " + Math.round(getWinPercentage(name)) + "%, finished "
+                        + results.finishtimes.getCount() + "/" + runs);
+                msg.println("    finish time   " + timeSummary(results.finishtimes));
+                for (int i = 0; i < results.legtimes.size(); i++) {
+                    msg.println("    leg " + (i + 1) + "         " + timeSummary(results.legtimes.get(i)));
+                }
+                msg.println("    distance (m)  " + distanceSummary(results.distances));
+                writeHistogram(msg, results.finishtimes);
+            }
+        }
+    }
+
+    private String timeSummary(Distribution d) {
+        return "mean " + mmssformat(d.getMean()) + "  min " + mmssformat(d.getMin())
+                + "  p10 " + mmssformat(d.getPercentile(10)) + "  p50 " + mmssformat(d.getPercentile(50))
+                + "  p90 " + mmssformat(d.getPercentile(90)) + "  max " + mmssformat(d.getMax());
+    }
+
+    private String distanceSummary(Distribution d) {
+        return "mean " + Math.round(d.getMean()) + "  min " + Math.round(d.getMin())
+                + "  p10 " + Math.round(d.getPercentile(10)) + "  p50 " + Math.round(d.getPercentile(50))
+                + "  p90 " + Math.round(d.getPercentile(90)) + "  max " + Math.round(d.getMax());
+    }
+
+    private void writeHistogram(OutputWriter msg, Distribution d) {
+        if (d.getCount() == 0) {
+            return;
+        }
+        int[] histogram = d.getHistogram(HISTOGRAMBINS);
+        int largest = 1;
+        for (int count : histogram) {
+            largest = Math.max(largest, count);
+        }
+        double min = d.getMin();
+        double width = (d.getMax() - min) / HISTOGRAMBINS;
+        for (int i = 0; i < HISTOGRAMBINS; i++) {
+            String bar = String.join("", Collections.nCopies(histogram[i] * HISTOGRAMWIDTH / largest, "#"));
+            msg.println("    " + mmssformat(min + width * i) + " " + bar + " " + histogram[i]);
+        }
+    }
+
+    private String mmssformat(double seconds) {
+        if (Double.isNaN(seconds)) {
+            return "-";
+        }
+        int secs = (int) Math.round(seconds);
+        String ss = Integer.toString(secs % 60);
+        if (ss.length() == 1) {
+            ss = "0" + ss;
+        }
+        return Integer.toString(secs / 60) + ":" + ss;
+    }
+
+    /**
+     * The results for one boat.
+     */
+    public static class BoatResults {
+
+        public final Distribution finishtimes = new Distribution();
+        public final Distribution distances = new Distribution();
+        public final List<Distribution> legtimes = new ArrayList<>();
+        private int wins = 0;
+
+        public int getWins() {
+            return wins;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * Runs many independent copies of a scenario, headless and in parallel, to
+ * build up the distribution of outcomes when the scenario includes random
+ * behaviour (eg random wind shifts).
+ *
+ * Each run has its own controller and its own seeded random number
+ * generator; the seeds are all derived from the ensemble seed, and the run
+ * results are combined in run order, so the ensemble results are repeatable
+ * for a given seed whatever the number of cores.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class EnsembleRunner {
+
+    private final JsonObject parsedjson;
+    private final Path basedirectory;
+    private final int timelimit;
+
+    /**
+     * Constructor
+     *
+     * @param parsedjson the parsed definition file
+     * @param timelimit the maximum simulation time of each run (seconds)
+     */
+    public EnsembleRunner(JsonObject parsedjson, int timelimit) {
+        this(parsedjson, null, timelimit);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parsedjson the parsed definition file
+     * @param basedirectory the directory of the definition file, or null if
+     * not known
+     * @param timelimit the maximum simulation time of each run (seconds)
+     */
+    public EnsembleRunner(JsonObject parsedjson, Path basedirectory, int timelimit) {
+        this.parsedjson = parsedjson;
+        this.basedirectory = basedirectory;
+        this.timelimit = timelimit;
+    }
+
+    /**
+     * Execute the ensemble.
+     *
+     * @param runs the number of runs
+     * @param seed the ensemble seed
+     * @return the ensemble results
+     * @throws IOException if problems
+     */
+    public EnsembleResults run(int runs, long seed) throws IOException {
+        long starttime = System.nanoTime();
+        Random seeder = new Random(seed);
+        long[] seeds = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            seeds[i] = seeder.nextLong();
+        }
+        List<RunResult> runresults;
+        try {
+            runresults = IntStream.range(0, runs).parallel()
+                    .mapToObj(i -> {
+                        try {
+                            return runOne(seeds[i]);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    }).collect(Collectors.toList());
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        EnsembleResults results = new EnsembleResults(seed, runs);
+        runresults.forEach(run -> results.add(run));
+        results.setElapsedNanos(System.nanoTime() - starttime);
+        return results;
+    }
+
+    private RunResult runOne(long seed) throws IOException {
+        Controller controller = new Controller(parsedjson, seed, basedirectory);
+        controller.runToFinish(timelimit);
+        return new RunResult(controller);
+    }
+}
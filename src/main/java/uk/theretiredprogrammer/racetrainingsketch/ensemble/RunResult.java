@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
+import uk.theretiredprogrammer.racetrainingsketch.strategy.LegSplit;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * The outcome of a single run of an ensemble - just the leg splits of each
+ * boat, so that the run's controller can be discarded.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class RunResult {
+
+    final Map<String, List<LegSplit>> legsplits = new TreeMap<>();
+    final Map<String, Boolean> finished = new TreeMap<>();
+
+    RunResult(Controller controller) {
+        for (Boat boat : controller.boats.getBoats()) {
+            legsplits.put(boat.name, new ArrayList<>(controller.boatstrategies.getLegSplits(boat)));
+            finished.put(boat.name, controller.boatstrategies.isFinished(boat));
+        }
+    }
+
+    /**
+     * Get the earliest finish time of any boat in this run.
+     *
+     * @return the winning time, or -1 if no boat finished
+     */
+    double getWinningTime() {
+        double winningtime = -1;
+        for (String name : legsplits.keySet()) {
+            if (finished.get(name)) {
+                double time = getFinishTime(name);
+                if (winningtime < 0 || time < winningtime) {
+                    winningtime = time;
+                }
+            }
+        }
+        return winningtime;
+    }
+
+    double getFinishTime(String name) {
+        List<LegSplit> splits = legsplits.get(name);
+        return splits.get(splits.size() - 1).time;
+    }
+}
@@ -52,6 +52,10 @@ public class ConstantFlowComponent extends FlowComponent {
         );
     }
 
+    SpeedPolar getFlow() {
+        return flow;
+    }
+
     @Override
     public SpeedPolar getFlow(Location pos) throws IOException {
         testLocationWithinArea(pos);
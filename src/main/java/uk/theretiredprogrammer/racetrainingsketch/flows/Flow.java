@@ -19,10 +19,21 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
+import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Supplier;
 import javax.json.JsonObject;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
@@ -33,7 +44,10 @@ import uk.theretiredprogrammer.racetrainingsketch.core.ColorParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.IntegerParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.RandomSource;
 import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+import uk.theretiredprogrammer.racetrainingsketch.playback.FlowFrame;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.Snapshotable;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.WindShiftLogEntry;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.WindSwingLogEntry;
@@ -46,17 +60,36 @@ import uk.theretiredprogrammer.racetrainingsketch.ui.Timerable;
  *
  * @author Richard Linsdale (richard at theretiredprogrammer.uk)
  */
-public abstract class Flow implements Displayable, Timerable {
+public abstract class Flow implements Displayable, Timerable, Snapshotable {
 
-    final static int WIDTHSTEPS = 100;
-    final static int HEIGHTSTEPS = 100;
-    private final SpeedPolar[][] flowarray = new SpeedPolar[WIDTHSTEPS + 1][HEIGHTSTEPS + 1];
+    // the default number of grid steps, across the width and the height,
+    // if no resolution is defined
+    final static int DEFAULTSTEPS = 100;
+    // the stream of random numbers used for the gust cells
+    private final static long GUSTSTREAM = 1;
+    // the flow arrows - the arrow is drawn in pixels
+    private final static Shape ARROW = createArrow();
+    private final static int ARROWSIZE = 20; // pixels, including its label
+    private final static BasicStroke ARROWSTROKE = new BasicStroke(1);
+    private final static Font LABELFONT = new Font("Sans Serif", Font.PLAIN, 10);
+    private final static long MAXLAYERPIXELS = 4000000; // above this the arrows are drawn directly
+    private volatile FlowGrid grid; // the grid at time zero
+    // the grids either side of the current time - only these two keyframe
+    // grids are held, the one after them being prepared in the background
+    private volatile FlowBlend blend;
+    private int keyframeindex = -1;
+    private double keyframetime = 0;
+    private CompletableFuture<FlowGrid> prepared;
+    private int preparedindex;
+    private GustCells gustcells; // null if no gust cells
+    private volatile GustField gusts;
     private final Area area;
-    private final double wstepsize;
-    private final double hstepsize;
 
     private Angle swingNow = new Angle(0);
     private Angle shiftNow = new Angle(0);
+    // the rotation of the flow by the current swing and shift
+    private double rotationsin = 0;
+    private double rotationcos = 1;
 
     private boolean showflow;
     private double showflowinterval;
@@ -66,11 +99,26 @@ public abstract class Flow implements Displayable, Timerable {
     private Angle shiftangle;
     private int shiftperiod;
     private boolean randomshifts;
+    private double resolution; // metres, zero if the default grid steps are used
+    private boolean adaptivegrid;
+    private double gridtolerance;
 
     private Angle meanflowangle;
     private final FlowComponentSet flowset;
+    private final List<FlowKeyframe> keyframes;
+    private final RandomSource random;
+    //
+    // the display of the flow arrows, which is only drawn from one thread
+    private volatile int drawversion; // incremented when the flows change in place, or how they are drawn changes
+    private BufferedImage layer; // the cached arrow layer, and what it was drawn for
+    private double layerscale;
+    private FlowFrame layerframe;
+    private int layerversion;
+    private final FlowVector drawflow = new FlowVector();
+    private final NumberFormat labelformat = NumberFormat.getInstance();
+    private final Map<Long, String> labels = new HashMap<>();
 
-    public Flow(Supplier<Controller> controllersupplier, JsonObject paramsobj, FlowComponentSet flowset) throws IOException {
+    Flow(Supplier<Controller> controllersupplier, String stream, JsonObject paramsobj, List<FlowKeyframe> keyframes) throws IOException {
         showflow = BooleanParser.parse(paramsobj, "showflow").orElse(false);
         showflowinterval = DoubleParser.parse(paramsobj, "showflowinterval").orElse(100.0);
         showflowcolor = ColorParser.parse(paramsobj, "showflowcolour").orElse(Color.black);
@@ -79,17 +127,25 @@ public abstract class Flow implements Displayable, Timerable {
         shiftangle = Angle.parse(paramsobj, "shiftangle").orElse(ANGLE0);
         shiftperiod = IntegerParser.parse(paramsobj, "shiftperiod").orElse(0);
         randomshifts = BooleanParser.parse(paramsobj, "randomshifts").orElse(false);
+        resolution = getResolution(paramsobj, 0.0);
+        adaptivegrid = BooleanParser.parse(paramsobj, "adaptivegrid").orElse(false);
+        gridtolerance = DoubleParser.parse(paramsobj, "gridtolerance").orElse(0.1);
         //
+        this.random = controllersupplier.get().getRandom().derive(stream);
         SailingArea sailingarea = controllersupplier.get().sailingarea;
         this.area = new Area(new Location(sailingarea.west, sailingarea.south),
                 sailingarea.east - sailingarea.west, sailingarea.north - sailingarea.south);
-        wstepsize = area.getWidth() / WIDTHSTEPS;
-        hstepsize = area.getHeight() / HEIGHTSTEPS;
-        this.flowset = flowset;
+        this.keyframes = keyframes;
+        this.flowset = keyframes.get(0).flowset;
+        labelformat.setMaximumFractionDigits(1);
+        labelformat.setMinimumFractionDigits(1);
         setFlows();
+        setGustCells(paramsobj);
+        setRotation();
     }
 
     public void change(JsonObject paramsobj) throws IOException {
+        checkChange(paramsobj);
         showflow = BooleanParser.parse(paramsobj, "showflow").orElse(showflow);
         showflowinterval = DoubleParser.parse(paramsobj, "showflowinterval").orElse(showflowinterval);
         showflowcolor = ColorParser.parse(paramsobj, "showflowcolour").orElse(showflowcolor);
@@ -98,6 +154,53 @@ public abstract class Flow implements Displayable, Timerable {
         shiftangle = Angle.parse(paramsobj, "shiftangle").orElse(shiftangle);
         shiftperiod = IntegerParser.parse(paramsobj, "shiftperiod").orElse(shiftperiod);
         randomshifts = BooleanParser.parse(paramsobj, "randomshifts").orElse(randomshifts);
+        double newresolution = getResolution(paramsobj, resolution);
+        boolean newadaptivegrid = BooleanParser.parse(paramsobj, "adaptivegrid").orElse(adaptivegrid);
+        double newgridtolerance = DoubleParser.parse(paramsobj, "gridtolerance").orElse(gridtolerance);
+        if (newresolution != resolution || newadaptivegrid != adaptivegrid || newgridtolerance != gridtolerance) {
+            resolution = newresolution;
+            adaptivegrid = newadaptivegrid;
+            gridtolerance = newgridtolerance;
+            setFlows();
+        }
+        setGustCells(paramsobj);
+        setRotation();
+        drawversion++;
+    }
+
+    /**
+     * Check changed flow parameters, without changing the flow - so that a
+     * change which is not valid can be found before anything is changed.
+     *
+     * @param paramsobj the changed parameters
+     * @throws IOException if problems with the parameters
+     */
+    public void checkChange(JsonObject paramsobj) throws IOException {
+        BooleanParser.parse(paramsobj, "showflow");
+        DoubleParser.parse(paramsobj, "showflowinterval");
+        ColorParser.parse(paramsobj, "showflowcolour");
+        Angle.parse(paramsobj, "swingangle");
+        IntegerParser.parse(paramsobj, "swingperiod");
+        Angle.parse(paramsobj, "shiftangle");
+        IntegerParser.parse(paramsobj, "shiftperiod");
+        BooleanParser.parse(paramsobj, "randomshifts");
+        getResolution(paramsobj, resolution);
+        BooleanParser.parse(paramsobj, "adaptivegrid");
+        DoubleParser.parse(paramsobj, "gridtolerance");
+        GustCells.check(paramsobj, gustcells);
+    }
+
+    private void setGustCells(JsonObject paramsobj) throws IOException {
+        gustcells = GustCells.create(paramsobj, gustcells, area, random.derive(GUSTSTREAM), blend);
+        gusts = gustcells == null ? null : gustcells.getField();
+    }
+
+    private double getResolution(JsonObject paramsobj, double defaultvalue) throws IOException {
+        Optional<Double> value = DoubleParser.parse(paramsobj, "resolution");
+        if (value.isPresent() && value.get() <= 0) {
+            throw new IOException("Malformed Definition file - resolution must be greater than zero");
+        }
+        return value.orElse(defaultvalue);
     }
 
     public FlowComponentSet getFlowComponentSet() {
@@ -105,61 +208,179 @@ public abstract class Flow implements Displayable, Timerable {
     }
 
     public final void setFlows() throws IOException {
-        double hpos = area.getBottomleft().getY();
-        double wpos = area.getBottomleft().getX();
-        for (int h = 0; h < HEIGHTSTEPS + 1; h++) {
-            double y = hpos + hstepsize * h;
-            for (int w = 0; w < WIDTHSTEPS + 1; w++) {
-                double x = wpos + wstepsize * w;
-                flowarray[w][h] = flowset.getFlow(new Location(x, y));
-            }
+        flowset.takeChangedArea();
+        grid = createGrid(flowset);
+        setMeanFlowAngle();
+        drawversion++;
+        keyframeindex = -1;
+        prepared = null;
+        setTime(keyframetime);
+    }
+
+    private FlowGrid createGrid(FlowComponentSet components) throws IOException {
+        if (adaptivegrid) {
+            double mincellsize = resolution > 0 ? resolution : Math.max(area.getWidth(), area.getHeight()) / DEFAULTSTEPS;
+            return new QuadtreeFlowGrid(area, components, getSteps(area.getWidth()), getSteps(area.getHeight()),
+                    mincellsize, gridtolerance);
+        } else {
+            return new UniformFlowGrid(area, components, getSteps(area.getWidth()), getSteps(area.getHeight()));
         }
-        meanflowangle = flowset.meanWindAngle(); // check if we are using a forced mean
-        if (meanflowangle == null) {
-            meanflowangle = calcMeanFlowAngle(); // if not then calculate it
+    }
+
+    /**
+     * Set the time of the flow - selecting the keyframes either side of the
+     * time and interpolating between them. Moving on to the next keyframe
+     * normally uses the grid prepared in the background, jumping to another
+     * time creates the grids needed.
+     *
+     * @param simulationtime the time
+     * @throws IOException if problems
+     */
+    public void setTime(double simulationtime) throws IOException {
+        keyframetime = simulationtime;
+        int index = getKeyframeIndex(simulationtime);
+        FlowBlend current = blend;
+        if (index != keyframeindex) {
+            FlowGrid from = current != null && index == keyframeindex + 1 && current.to != null ? current.to : getKeyframeGrid(index);
+            FlowGrid to = index + 1 < keyframes.size() ? getKeyframeGrid(index + 1) : null;
+            keyframeindex = index;
+            prepareKeyframeGrid(index + 2);
+            current = new FlowBlend(from, to, 0);
+        }
+        // before the first keyframe the flow is that of the first keyframe
+        double fraction = current.to == null ? 0
+                : Math.max(0, (simulationtime - keyframes.get(index).time) / (keyframes.get(index + 1).time - keyframes.get(index).time));
+        blend = fraction == current.fraction ? current : new FlowBlend(current.from, current.to, fraction);
+    }
+
+    private int getKeyframeIndex(double simulationtime) {
+        int index = 0;
+        while (index + 1 < keyframes.size() && keyframes.get(index + 1).time <= simulationtime) {
+            index++;
         }
+        return index;
     }
 
-    private SpeedPolar getFlowwithoutswing(Location pos) throws IOException {
-        int w = (int) Math.floor((pos.getX() - area.getBottomleft().getX()) / wstepsize);
-        if (w < 0) {
-            w = 0;
+    private FlowGrid getKeyframeGrid(int index) throws IOException {
+        if (index == 0) {
+            return grid;
         }
-        if (w > WIDTHSTEPS) {
-            w = WIDTHSTEPS;
+        if (prepared != null && preparedindex == index) {
+            CompletableFuture<FlowGrid> future = prepared;
+            prepared = null;
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) ex.getCause()).getCause();
+                }
+                throw ex;
+            }
         }
-        int h = (int) Math.floor((pos.getY() - area.getBottomleft().getY()) / hstepsize);
-        if (h < 0) {
-            h = 0;
+        return createGrid(keyframes.get(index).flowset);
+    }
+
+    private void prepareKeyframeGrid(int index) {
+        if (index < keyframes.size()) {
+            FlowComponentSet components = keyframes.get(index).flowset;
+            prepared = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return createGrid(components);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            preparedindex = index;
+        } else {
+            prepared = null;
         }
-        if (h > HEIGHTSTEPS) {
-            h = HEIGHTSTEPS;
+    }
+
+    /**
+     * Update the flows after flow components have been changed - only the
+     * part of the flow grid where the flow may have changed is recalculated
+     * (if the grid supports it). The grid is updated as a copy, which then
+     * replaces it, so frames already taken keep the flows they had.
+     *
+     * @throws IOException if problems
+     */
+    public void updateFlows() throws IOException {
+        Optional<Area> changedarea = flowset.takeChangedArea();
+        if (changedarea.isPresent()) {
+            FlowGrid previous = grid;
+            FlowGrid updated = previous.update(flowset, changedarea.get());
+            if (updated == null) {
+                setFlows();
+                return;
+            }
+            grid = updated;
+            setMeanFlowAngle();
+            drawversion++;
+            // the grid at time zero is only ever the from grid of a blend
+            FlowBlend current = blend;
+            if (current != null && current.from == previous) {
+                blend = new FlowBlend(updated, current.to, current.fraction);
+            }
         }
-        return flowarray[w][h];
     }
-    
+
+    private void setMeanFlowAngle() {
+        meanflowangle = flowset.meanWindAngle(); // check if we are using a forced mean
+        if (meanflowangle == null) {
+            meanflowangle = grid.getMeanAngle(); // if not then calculate it
+        }
+    }
+
+    private int getSteps(double size) {
+        return resolution > 0 ? Math.max(1, (int) Math.ceil(size / resolution - 1E-9)) : DEFAULTSTEPS;
+    }
+
+    /**
+     * Get the number of flow values held in the flow grid.
+     *
+     * @return the number of values
+     */
+    public int getGridSize() {
+        return grid.getSize();
+    }
+
+    private void getFlowwithoutswing(double x, double y, FlowVector result) {
+        getFlowwithoutswing(x, y, result, blend, gusts);
+    }
+
+    private void getFlowwithoutswing(double x, double y, FlowVector result, FlowBlend fromblend, GustField withgusts) {
+        fromblend.getFlow(x, y, result);
+        if (withgusts != null) {
+            withgusts.apply(x, y, result);
+        }
+    }
+
     public Angle getMeanFlowAngle(Location pos) throws IOException {
-        return getFlowwithoutswing(pos).getAngle();
+        FlowVector flow = new FlowVector();
+        getFlowwithoutswing(pos.getX(), pos.getY(), flow);
+        return flow.getAngle();
     }
 
     public Angle getMeanFlowAngle() throws IOException {
         return meanflowangle;
     }
 
-    private Angle calcMeanFlowAngle() throws IOException {
-        return SpeedPolar.meanAngle(flowarray);
-    }
-
     /**
      * Advance time. Recalculate the flow.
      *
      * @param simulationtime the new setTime
+     * @param dt the time step
      */
     @Override
-    public void timerAdvance(int simulationtime, TimerLog timerlog) {
+    public void timerAdvance(double simulationtime, double dt, TimerLog timerlog) throws IOException {
+        setTime(simulationtime);
+        if (gustcells != null) {
+            gustcells.timerAdvance(dt, blend);
+            gusts = gustcells.getField();
+        }
         if (swingperiod != 0) {
             // as we are using a sine rule for swing - convert to an angle (in radians)
-            double radians = Math.toRadians(((double) simulationtime % swingperiod) / swingperiod * 360);
+            double radians = Math.toRadians((simulationtime % swingperiod) / swingperiod * 360);
             swingNow = swingangle.mult(Math.sin(radians));
             timerlog.add(new WindSwingLogEntry(swingNow));
         } else {
@@ -169,7 +390,7 @@ public abstract class Flow implements Displayable, Timerable {
         Angle shiftval = ANGLE0;
         boolean shifting = false;
         if (shiftperiod != 0) {
-            double delta = randomshifts ? Math.random() * shiftperiod : simulationtime % shiftperiod;
+            double delta = randomshifts ? random.nextDouble() * shiftperiod : simulationtime % shiftperiod;
             double quarterPeriod = shiftperiod / 4;
             if (delta < quarterPeriod) {
                 shiftval = ANGLE0;
@@ -183,8 +404,8 @@ public abstract class Flow implements Displayable, Timerable {
             shifting = true;
         }
         if (randomshifts) {
-            // only apply the random shift in 2% of cases - otherwise leave alone
-            if (Math.random() <= 0.02) {
+            // only apply the random shift in 2% of seconds - otherwise leave alone
+            if (random.nextDouble() <= 1 - Math.pow(0.98, dt)) {
                 shiftNow = shiftval;
             }
             shifting = true;
@@ -194,6 +415,87 @@ public abstract class Flow implements Displayable, Timerable {
         if (shifting){
             timerlog.add(new WindShiftLogEntry(shiftNow));
         }
+        setRotation();
+    }
+
+    // precalculate the rotation for the current swing and shift, so that it
+    // can be applied to each flow lookup without any trig
+    private void setRotation() {
+        double radians = Math.toRadians(getRotation(swingNow, shiftNow));
+        rotationsin = Math.sin(radians);
+        rotationcos = Math.cos(radians);
+    }
+
+    private double getRotation(Angle swing, Angle shift) {
+        return (swingperiod > 0 ? swing.getDegrees() : 0)
+                + (shiftperiod > 0 || randomshifts ? shift.getDegrees() : 0);
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(swingNow.getDegrees());
+        out.writeDouble(shiftNow.getDegrees());
+        out.writeLong(random.getState());
+        if (gustcells != null) {
+            gustcells.writeState(out);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        swingNow = new Angle(in.readDouble());
+        shiftNow = new Angle(in.readDouble());
+        random.setState(in.readLong());
+        if (gustcells != null) {
+            gustcells.readState(in);
+            gusts = gustcells.getField();
+        }
+        setRotation();
+    }
+
+    /**
+     * Test if the flow is steady - ie it does not change with time (no swing,
+     * no shifts, no keyframes and no gust cells).
+     *
+     * @return true if steady
+     */
+    public boolean isSteady() {
+        return swingperiod == 0 && shiftperiod == 0 && !randomshifts && keyframes.size() == 1 && gustcells == null;
+    }
+
+    /**
+     * Get the time for which the flow will remain uniform and unchanged - ie
+     * all time steps starting within this time will see the same flow as the
+     * time step starting now, everywhere.
+     *
+     * @param simulationtime the time of the current time step
+     * @return the time (seconds), zero if the flow is not uniform or may
+     * change at any time
+     */
+    public double getSteadyTime(double simulationtime) {
+        int index = getKeyframeIndex(simulationtime);
+        if (swingperiod != 0 || randomshifts || gustcells != null || index + 1 < keyframes.size() || !keyframes.get(index).flowset.isUniform()) {
+            return 0;
+        }
+        if (shiftperiod == 0) {
+            return Double.MAX_VALUE;
+        }
+        // shifts change at each quarter period (as calculated in timerAdvance)
+        double delta = simulationtime % shiftperiod;
+        double quarterPeriod = shiftperiod / 4;
+        double changetime = delta < quarterPeriod ? quarterPeriod
+                : delta < quarterPeriod * 2 ? quarterPeriod * 2
+                : delta < quarterPeriod * 3 ? quarterPeriod * 3 : shiftperiod;
+        return changetime - delta;
+    }
+
+    /**
+     * Get the current state of the flow, for display.
+     *
+     * @return the flow frame
+     */
+    public FlowFrame getFrame() {
+        return new FlowFrame(swingNow, shiftNow, blend, gusts);
     }
 
     /**
@@ -204,72 +506,210 @@ public abstract class Flow implements Displayable, Timerable {
      */
     @Override
     public void draw(Graphics2D g2D, double zoom) throws IOException {
+        draw(g2D, zoom, getFrame());
+    }
+
+    /**
+     * Draw the Flow arrows on the display canvas, as they were in a frame.
+     *
+     * The arrows are drawn into an image, which is reused until the flow (or
+     * the scale) changes, unless the image would be too large.
+     *
+     * @param g2D the 2D graphics object
+     * @param zoom the scale factor (pixels/metre)
+     * @param frame the flow frame
+     * @throws IOException if problems
+     */
+    public void draw(Graphics2D g2D, double zoom, FlowFrame frame) throws IOException {
+        if (!showflow) {
+            return;
+        }
+        // the layer is drawn at the device scale, so that it is not resampled
+        double scale = Math.abs(g2D.getTransform().getScaleX());
+        double margin = ARROWSIZE / zoom; // arrows can extend beyond the area
+        double west = area.getBottomleft().getX() - margin;
+        double north = area.getBottomleft().getY() + area.getHeight() + margin;
+        int width = (int) Math.ceil((area.getWidth() + margin * 2) * scale);
+        int height = (int) Math.ceil((area.getHeight() + margin * 2) * scale);
+        if (width <= 0 || height <= 0 || (long) width * height > MAXLAYERPIXELS) {
+            drawArrows(g2D, zoom, frame);
+            return;
+        }
+        if (!isLayerValid(scale, frame)) {
+            layer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D layerg2D = layer.createGraphics();
+            try {
+                layerg2D.setRenderingHints(g2D.getRenderingHints());
+                layerg2D.scale(scale, -scale);
+                layerg2D.translate(-west, -north);
+                drawArrows(layerg2D, zoom, frame);
+            } finally {
+                layerg2D.dispose();
+            }
+            layerscale = scale;
+            layerframe = frame;
+            layerversion = drawversion;
+        }
+        AffineTransform xform = g2D.getTransform();
+        g2D.translate(west, north);
+        g2D.scale(1 / scale, -1 / scale);
+        g2D.drawImage(layer, 0, 0, null);
+        g2D.setTransform(xform);
+    }
+
+    // the layer can be reused if it was drawn at the same scale for the same
+    // flow - the same grids and gusts, with the same swing and shift
+    private boolean isLayerValid(double scale, FlowFrame frame) {
+        return layer != null && layerscale == scale && layerversion == drawversion
+                && layerframe.blend == frame.blend && layerframe.gusts == frame.gusts
+                && getRotation(layerframe.swing, layerframe.shift) == getRotation(frame.swing, frame.shift);
+    }
+
+    /**
+     * Get the cached arrow layer (for tests).
+     *
+     * @return the layer, or null if none
+     */
+    BufferedImage getArrowLayer() {
+        return layer;
+    }
+
+    private void drawArrows(Graphics2D g2D, double zoom, FlowFrame frame) {
         Location sw = area.getBottomleft();
         double westedge = sw.getX();
         double eastedge = westedge + area.getWidth();
         double southedge = sw.getY();
         double northedge = southedge + area.getHeight();
-        if (showflow) { // draw the flow arrows
-            //
-            double x = westedge + showflowinterval;
-            while (x < eastedge) {
-                double y = southedge + showflowinterval;
-                while (y < northedge) {
-                    displayWindGraphic(g2D, zoom, x, y);
-                    y += showflowinterval;
-                }
-                x += showflowinterval;
+        double radians = Math.toRadians(getRotation(frame.swing, frame.shift));
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        g2D.setColor(showflowcolor);
+        g2D.setStroke(ARROWSTROKE);
+        g2D.setFont(LABELFONT);
+        double x = westedge + showflowinterval;
+        while (x < eastedge) {
+            double y = southedge + showflowinterval;
+            while (y < northedge) {
+                getFlowwithoutswing(x, y, drawflow, frame.blend, frame.gusts);
+                rotate(drawflow, sin, cos);
+                displayWindGraphic(g2D, zoom, x, y, drawflow);
+                y += showflowinterval;
             }
+            x += showflowinterval;
         }
     }
 
-    private void displayWindGraphic(Graphics2D g2D, double pixelsPerMetre, double x, double y) throws IOException {
-        GeneralPath p = new GeneralPath();
-        p.moveTo(0, 15);
-        p.lineTo(0, -15);
-        p.moveTo(4, 7);
-        p.lineTo(0, 15);
-        p.lineTo(-4, 7);
-        //
+    private void displayWindGraphic(Graphics2D g2D, double pixelsPerMetre, double x, double y, FlowVector flow) {
         AffineTransform xform = g2D.getTransform();
         g2D.translate(x, y);
         g2D.scale(1 / pixelsPerMetre, -1 / pixelsPerMetre);
-        SpeedPolar flow = getFlow(new Location(x, y));
-        g2D.rotate(flow.getAngle().getRadians());
-        g2D.setColor(showflowcolor);
-        g2D.setStroke(new BasicStroke(1));
-        g2D.draw(p);
+        double degrees = flow.getDegrees();
+        g2D.rotate(Math.toRadians(degrees));
+        g2D.draw(ARROW);
         //
-        g2D.setFont(new Font("Sans Serif", Font.PLAIN, 10));
-        NumberFormat nf = NumberFormat.getInstance();
-        nf.setMaximumFractionDigits(1);
-        nf.setMinimumFractionDigits(1);
-        String windspeedText = nf.format(flow.getSpeed());
-        if (flow.getAngle().isPositive()) {
+        if (degrees >= 0) {
             g2D.translate(-2, 4);
             g2D.rotate(-Math.PI / 2);
         } else {
             g2D.translate(+2, -15);
             g2D.rotate(Math.PI / 2);
         }
-        g2D.drawString(windspeedText, 0, 0);
+        g2D.drawString(getLabel(flow.getSpeed()), 0, 0);
         g2D.setTransform(xform);
     }
 
+    // labels are cached by speed (to one decimal place)
+    private String getLabel(double speed) {
+        long tenths = Math.round(speed * 10);
+        String label = labels.get(tenths);
+        if (label == null) {
+            label = labelformat.format(tenths / 10.0);
+            labels.put(tenths, label);
+        }
+        return label;
+    }
+
+    private static Shape createArrow() {
+        GeneralPath p = new GeneralPath();
+        p.moveTo(0, 15);
+        p.lineTo(0, -15);
+        p.moveTo(4, 7);
+        p.lineTo(0, 15);
+        p.lineTo(-4, 7);
+        return p;
+    }
+
     /**
-     * Get the Flow at the current setTime, at the requested location.
+     * Get the Flow at the current setTime, at the requested location. This
+     * allocates the flow (use getFlow into a FlowVector on the hot paths).
      *
      * @param pos location
      * @return the flow
      */
     public SpeedPolar getFlow(Location pos) throws IOException {
-        SpeedPolar f = getFlowwithoutswing(pos);
-        if (swingperiod > 0) {
-            f = new SpeedPolar(f.getSpeed(), f.getAngle().add(swingNow));
-        }
-        if (shiftperiod > 0 || randomshifts) {
-            f = new SpeedPolar(f.getSpeed(), f.getAngle().add(shiftNow));
-        }
-        return f;
+        FlowVector flow = new FlowVector();
+        getFlow(pos.getX(), pos.getY(), flow);
+        return flow.getSpeedPolar();
+    }
+
+    /**
+     * Get the direction of the Flow at the current time, at the requested
+     * location, without any allocation.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param holder the flow vector to use for the lookup
+     * @return the direction the flow comes from (degrees)
+     */
+    public double getFlowDegrees(double x, double y, FlowVector holder) {
+        getFlow(x, y, holder);
+        return holder.getDegrees();
+    }
+
+    /**
+     * Get the Flow at the current time, at the requested location, without
+     * any allocation.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param result the flow
+     */
+    public void getFlow(double x, double y, FlowVector result) {
+        getFlowwithoutswing(x, y, result);
+        rotate(result, rotationsin, rotationcos);
+    }
+
+    /**
+     * Get the Flow as it was in a frame, at the requested location.
+     *
+     * @param pos location
+     * @param frame the flow frame
+     * @return the flow
+     * @throws IOException if problems
+     */
+    public SpeedPolar getFlow(Location pos, FlowFrame frame) throws IOException {
+        FlowVector flow = new FlowVector();
+        getFlow(pos.getX(), pos.getY(), frame, flow);
+        return flow.getSpeedPolar();
+    }
+
+    /**
+     * Get the Flow as it was in a frame, at the requested location, without
+     * any allocation.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param frame the flow frame
+     * @param result the flow
+     */
+    public void getFlow(double x, double y, FlowFrame frame, FlowVector result) {
+        getFlowwithoutswing(x, y, result, frame.blend, frame.gusts);
+        double radians = Math.toRadians(getRotation(frame.swing, frame.shift));
+        rotate(result, Math.sin(radians), Math.cos(radians));
+    }
+
+    // rotate the flow clockwise (an increase in its angle)
+    private void rotate(FlowVector flow, double sin, double cos) {
+        flow.set(flow.u * cos + flow.v * sin, flow.v * cos - flow.u * sin);
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+/**
+ * The flow grids for the keyframes either side of a time, and how far the
+ * time is between them.
+ *
+ * Once created a blend is not changed, so the flow at a time can be looked up
+ * from it while the simulation moves on.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FlowBlend {
+
+    final FlowGrid from;
+    final FlowGrid to; // null if after the last keyframe
+    final double fraction; // 0 at the from keyframe, 1 at the to keyframe
+
+    FlowBlend(FlowGrid from, FlowGrid to, double fraction) {
+        this.from = from;
+        this.to = to;
+        this.fraction = fraction;
+    }
+
+    void getFlow(double x, double y, FlowVector result) {
+        from.getFlow(x, y, result);
+        if (to != null && fraction > 0) {
+            double u = result.u;
+            double v = result.v;
+            to.getFlow(x, y, result);
+            result.set(u + (result.u - u) * fraction, v + (result.v - v) * fraction);
+        }
+    }
+}
@@ -71,12 +71,33 @@ public abstract class FlowComponent {
     }
     
     public abstract SpeedPolar getFlow(Location pos) throws IOException;
+
+    /**
+     * Get the flow at a location, as a vector, without any allocation (if the
+     * component supports it).
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param result the flow
+     * @throws IOException if problems
+     */
+    void getFlow(double x, double y, FlowVector result) throws IOException {
+        SpeedPolar flow = getFlow(new Location(x, y));
+        double radians = flow.getAngle().getRadians();
+        result.set(flow.getSpeed() * Math.sin(radians), flow.getSpeed() * Math.cos(radians));
+    }
     
     void testLocationWithinArea(Location pos) throws IOException {
         if (!getArea().isWithinArea(pos)) {
             throw new IOException("Location is not with the Area " + pos);
         }
     }
+
+    void testLocationWithinArea(double x, double y) throws IOException {
+        if (!getArea().isWithinArea(x, y)) {
+            throw new IOException("Location is not with the Area " + new Location(x, y));
+        }
+    }
     
     public Angle meanWindAngle() {
         return null; // should override if manual control  of mean wind angle required
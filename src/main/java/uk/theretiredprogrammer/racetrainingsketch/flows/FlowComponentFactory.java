@@ -40,6 +40,8 @@ public class FlowComponentFactory {
                 return new ConstantFlowComponent(controllersupplier, paramobj);
             case "gradientflow":
                 return new GradientFlowComponent(controllersupplier, paramobj);
+            case "gridfile":
+                return new GridFileFlowComponent(controllersupplier, paramobj);
             default:
                 throw new IOException("Missing or Unknown type parameter in flow definition");
         }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+
+/**
+ * A spatial index of flow components - a uniform grid of buckets over the
+ * areas of all the components, each holding the components which overlap
+ * it, highest zlevel first. Components with a negative zlevel are never
+ * used, and are not indexed.
+ *
+ * The index is immutable - it must be rebuilt if any component is added, or
+ * is moved or resized.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class FlowComponentIndex {
+
+    private static final int MAXBUCKETS = 64;
+
+    private final double minx;
+    private final double miny;
+    private final double bucketwidth;
+    private final double bucketheight;
+    private final int buckets;
+    private final FlowComponent[][] bucketflows;
+
+    FlowComponentIndex(List<FlowComponent> allflows) {
+        List<FlowComponent> flows = new ArrayList<>();
+        for (FlowComponent flow : allflows) {
+            if (flow.getZlevel() >= 0) {
+                flows.add(flow);
+            }
+        }
+        double x0 = Double.MAX_VALUE;
+        double y0 = Double.MAX_VALUE;
+        double x1 = -Double.MAX_VALUE;
+        double y1 = -Double.MAX_VALUE;
+        for (FlowComponent flow : flows) {
+            Area area = flow.getArea();
+            x0 = Math.min(x0, area.getBottomleft().getX());
+            y0 = Math.min(y0, area.getBottomleft().getY());
+            x1 = Math.max(x1, area.getBottomleft().getX() + area.getWidth());
+            y1 = Math.max(y1, area.getBottomleft().getY() + area.getHeight());
+        }
+        minx = x0;
+        miny = y0;
+        buckets = flows.isEmpty() ? 0 : Math.min(MAXBUCKETS, 2 * (int) Math.ceil(Math.sqrt(flows.size())));
+        bucketwidth = buckets == 0 ? 0 : Math.max(x1 - x0, Double.MIN_NORMAL) / buckets;
+        bucketheight = buckets == 0 ? 0 : Math.max(y1 - y0, Double.MIN_NORMAL) / buckets;
+        // highest zlevel first; the first defined if the same zlevel (the sort
+        // is stable)
+        flows.sort(Comparator.comparingInt(FlowComponent::getZlevel).reversed());
+        List<List<FlowComponent>> lists = new ArrayList<>();
+        for (int i = 0; i < buckets * buckets; i++) {
+            lists.add(new ArrayList<>());
+        }
+        for (FlowComponent flow : flows) {
+            Area area = flow.getArea();
+            int w0 = getBucketX(area.getBottomleft().getX());
+            int w1 = getBucketX(area.getBottomleft().getX() + area.getWidth());
+            int h0 = getBucketY(area.getBottomleft().getY());
+            int h1 = getBucketY(area.getBottomleft().getY() + area.getHeight());
+            for (int h = h0; h <= h1; h++) {
+                for (int w = w0; w <= w1; w++) {
+                    lists.get(h * buckets + w).add(flow);
+                }
+            }
+        }
+        bucketflows = new FlowComponent[buckets * buckets][];
+        for (int i = 0; i < bucketflows.length; i++) {
+            bucketflows[i] = lists.get(i).toArray(new FlowComponent[0]);
+        }
+    }
+
+    private int getBucketX(double x) {
+        return Math.min(Math.max((int) Math.floor((x - minx) / bucketwidth), 0), buckets - 1);
+    }
+
+    private int getBucketY(double y) {
+        return Math.min(Math.max((int) Math.floor((y - miny) / bucketheight), 0), buckets - 1);
+    }
+
+    /**
+     * Get the flow component which defines the flow at a location - the
+     * component with the highest (non negative) zlevel whose area includes
+     * the location, the first defined if more than one has that zlevel.
+     *
+     * @param pos the location
+     * @return the flow component, or null if none
+     */
+    FlowComponent getFlowComponent(Location pos) {
+        return getFlowComponent(pos.getX(), pos.getY());
+    }
+
+    FlowComponent getFlowComponent(double x, double y) {
+        if (buckets == 0) {
+            return null;
+        }
+        for (FlowComponent flow : bucketflows[getBucketY(y) * buckets + getBucketX(x)]) {
+            if (flow.getArea().isWithinArea(x, y)) {
+                return flow;
+            }
+        }
+        return null;
+    }
+}
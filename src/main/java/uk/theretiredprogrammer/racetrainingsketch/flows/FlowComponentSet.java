@@ -18,8 +18,10 @@ package uk.theretiredprogrammer.racetrainingsketch.flows;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import javax.json.JsonObject;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE0;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
@@ -31,13 +33,20 @@ import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
 public class FlowComponentSet  {
     
     private final List<FlowComponent> flows = new ArrayList<>();
+    // the index of the components over their areas - rebuilt when next used
+    // after any component is added or changed
+    private volatile FlowComponentIndex index;
+    // the area in which the flow may have changed since the flow grid was
+    // last updated; null if none
+    private Area changedarea;
     
     public void change(JsonObject params, String name) throws IOException {
         for (FlowComponent flow : flows) {
             if (flow.getName().equals(name)) {
-                flow.change(params);
+                change(flow, params);
             }
         }
+        index = null;
     }
     
     public void change(JsonObject params) throws IOException {
@@ -47,32 +56,129 @@ public class FlowComponentSet  {
     public void change(JsonObject params, int zlevel) throws IOException {        
         for (FlowComponent flow : flows) {
             if (flow.getZlevel() == zlevel) {
-                flow.change(params);
+                change(flow, params);
             }
         }
+        index = null;
+    }
+
+    // the flow may change anywhere in the component's old or new area
+    private void change(FlowComponent flow, JsonObject params) throws IOException {
+        Area oldarea = flow.getArea();
+        flow.change(params);
+        addChangedArea(oldarea.union(flow.getArea()));
+    }
+
+    private void addChangedArea(Area area) {
+        changedarea = changedarea == null ? area : changedarea.union(area);
     }
     
     public void add(FlowComponent flow){
         flows.add(flow);
+        addChangedArea(flow.getArea());
+        index = null;
+    }
+
+    /**
+     * Get the area in which the flow may have changed (as components have been
+     * added or changed) since this was last called, and reset it.
+     *
+     * @return the changed area, or empty if no changes
+     */
+    public Optional<Area> takeChangedArea() {
+        Optional<Area> area = Optional.ofNullable(changedarea);
+        changedarea = null;
+        return area;
     }
     
     public SpeedPolar getFlow(Location pos) throws IOException {
-        int zlevel  = -1;
-        FlowComponent flowtouse = null;
-        for (FlowComponent flow : flows) {
-            if (flow.getArea().isWithinArea(pos)) {
-                if (flow.getZlevel() > zlevel) {
-                    zlevel = flow.getZlevel();
-                    flowtouse = flow;
-                }
-            }
-        }
+        FlowComponent flowtouse = getIndex().getFlowComponent(pos);
         if (flowtouse == null) {
             throw new IOException("Undefined flow component as location "+pos);
         }
         return flowtouse.getFlow(pos);
     }
+
+    /**
+     * Get the flow at a location, as a vector.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param result the flow
+     * @throws IOException if problems
+     */
+    void getFlow(double x, double y, FlowVector result) throws IOException {
+        FlowComponent flowtouse = getIndex().getFlowComponent(x, y);
+        if (flowtouse == null) {
+            throw new IOException("Undefined flow component as location " + new Location(x, y));
+        }
+        flowtouse.getFlow(x, y, result);
+    }
     
+    // the flow grid is filled in parallel, so the index is only built once
+    private FlowComponentIndex getIndex() {
+        FlowComponentIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    current = new FlowComponentIndex(flows);
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Test if the edge of any flow component passes through the inside of a
+     * rectangle - ie a component overlaps the rectangle without covering all
+     * of it.
+     *
+     * @param x0 the west edge of the rectangle
+     * @param y0 the south edge of the rectangle
+     * @param x1 the east edge of the rectangle
+     * @param y1 the north edge of the rectangle
+     * @return true if an edge is within the rectangle
+     */
+    public boolean isEdgeWithin(double x0, double y0, double x1, double y1) {
+        for (FlowComponent flow : flows) {
+            Area area = flow.getArea();
+            double ax0 = area.getBottomleft().getX();
+            double ay0 = area.getBottomleft().getY();
+            double ax1 = ax0 + area.getWidth();
+            double ay1 = ay0 + area.getHeight();
+            boolean overlaps = ax0 < x1 && ax1 > x0 && ay0 < y1 && ay1 > y0;
+            boolean covers = ax0 <= x0 && ax1 >= x1 && ay0 <= y0 && ay1 >= y1;
+            if (overlaps && !covers) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test if the flow is the same everywhere - ie all components are
+     * constant flows, with the same speed and direction.
+     *
+     * @return true if uniform
+     */
+    public boolean isUniform() {
+        SpeedPolar uniform = null;
+        for (FlowComponent flow : flows) {
+            if (!(flow instanceof ConstantFlowComponent)) {
+                return false;
+            }
+            SpeedPolar f = ((ConstantFlowComponent) flow).getFlow();
+            if (uniform == null) {
+                uniform = f;
+            } else if (f.getSpeed() != uniform.getSpeed() || !f.getAngle().equals(uniform.getAngle())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Angle meanWindAngle() {
         for (FlowComponent flow : flows) {
             Angle res = flow.meanWindAngle();
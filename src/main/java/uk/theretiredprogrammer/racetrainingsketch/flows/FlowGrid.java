@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+
+/**
+ * A grid of precalculated flows, covering the sailing area, from which the
+ * flow at any location is interpolated.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+abstract class FlowGrid {
+
+    final Area area;
+
+    FlowGrid(Area area) {
+        this.area = area;
+    }
+
+    /**
+     * Get the flow at a location. Locations outside the area take the flow at
+     * the nearest edge.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param result the flow
+     */
+    abstract void getFlow(double x, double y, FlowVector result);
+
+    /**
+     * Create a copy of the grid, updated where the flow may have changed. The
+     * grid itself is not changed, as it may still be read from blends and
+     * frames.
+     *
+     * @param flowset the flow components
+     * @param changedarea the area in which the flow may have changed
+     * @return the updated grid, or null if the grid cannot be updated in part
+     * (and must be rebuilt)
+     * @throws IOException if problems
+     */
+    FlowGrid update(FlowComponentSet flowset, Area changedarea) throws IOException {
+        return null;
+    }
+
+    /**
+     * Get the mean angle of the flow over the area - the mean of the angles
+     * of the flows at the points of a uniform grid over the area, each point
+     * counting equally. Calm points have no direction, so are not counted.
+     *
+     * @return the mean angle
+     */
+    abstract Angle getMeanAngle();
+
+    /**
+     * Get the number of flow values held by the grid.
+     *
+     * @return the number of values
+     */
+    abstract int getSize();
+
+    double clampX(double x) {
+        return Math.min(Math.max(x, area.getBottomleft().getX()), area.getBottomleft().getX() + area.getWidth());
+    }
+
+    double clampY(double y) {
+        return Math.min(Math.max(y, area.getBottomleft().getY()), area.getBottomleft().getY() + area.getHeight());
+    }
+
+    static void sample(FlowComponentSet flowset, double x, double y, FlowVector result) throws IOException {
+        flowset.getFlow(x, y, result);
+    }
+
+    static double bilinear(double sw, double se, double nw, double ne, double tw, double th) {
+        return (sw * (1 - tw) + se * tw) * (1 - th) + (nw * (1 - tw) + ne * tw) * th;
+    }
+}
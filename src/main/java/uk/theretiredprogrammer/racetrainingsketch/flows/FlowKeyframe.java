@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * A keyframe of a flow - the flow components which define the flow at a
+ * time. The flow between keyframes is interpolated; before the first keyframe
+ * and after the last the flow is that of the keyframe.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class FlowKeyframe {
+
+    private final static int TIDALHOURS = 13; // HW-6 to HW+6
+
+    final double time;
+    final FlowComponentSet flowset;
+
+    FlowKeyframe(double time, FlowComponentSet flowset) {
+        this.time = time;
+        this.flowset = flowset;
+    }
+
+    /**
+     * Create the keyframes of a flow - the flow components at time zero,
+     * followed by those defined in the keyframes array (if present).
+     *
+     * The keyframes array contains objects, each with a time (seconds) and a
+     * components array of flow components, in increasing order of time.
+     *
+     * @param controllersupplier the controller supplier
+     * @param flowset the flow components at time zero
+     * @param keyframesarray the keyframes array, or null if not defined
+     * @param name the name of the keyframes array (for error messages)
+     * @return the keyframes
+     * @throws IOException if problems
+     */
+    static List<FlowKeyframe> create(Supplier<Controller> controllersupplier, FlowComponentSet flowset,
+            JsonArray keyframesarray, String name) throws IOException {
+        List<FlowKeyframe> keyframes = new ArrayList<>();
+        keyframes.add(new FlowKeyframe(0, flowset));
+        if (keyframesarray != null) {
+            for (JsonValue keyframev : keyframesarray) {
+                if (keyframev.getValueType() != JsonValue.ValueType.OBJECT) {
+                    throw new IOException("Malformed Definition File - " + name + " array contains items other that keyframe objects");
+                }
+                JsonObject keyframe = (JsonObject) keyframev;
+                double time = DoubleParser.parse(keyframe, "time").orElseThrow(
+                        () -> new IOException("Malformed Definition File - " + name + " keyframe missing time"));
+                if (time <= keyframes.get(keyframes.size() - 1).time) {
+                    throw new IOException("Malformed Definition File - " + name + " keyframe times must be increasing and greater than zero");
+                }
+                JsonArray componentsarray = keyframe.getJsonArray("components");
+                if (componentsarray == null) {
+                    throw new IOException("Malformed Definition File - " + name + " keyframe missing components array");
+                }
+                keyframes.add(new FlowKeyframe(time, createFlowComponentSet(controllersupplier, componentsarray, name)));
+            }
+        }
+        return keyframes;
+    }
+
+    /**
+     * Create the keyframes of a tidal flow - the flow components for each
+     * tidal hour, from six hours before high water to six hours after.
+     *
+     * The tides object contains the time of high water (seconds from the
+     * start of the simulation - negative if before it), the length of a tidal
+     * hour (seconds, default 3600) and an hours array of 13 arrays of flow
+     * components (HW-6 to HW+6).
+     *
+     * @param controllersupplier the controller supplier
+     * @param tides the tides object
+     * @param name the name of the tides object (for error messages)
+     * @return the keyframes
+     * @throws IOException if problems
+     */
+    static List<FlowKeyframe> createTidal(Supplier<Controller> controllersupplier, JsonObject tides, String name) throws IOException {
+        double highwater = DoubleParser.parse(tides, "highwater").orElseThrow(
+                () -> new IOException("Malformed Definition File - " + name + " missing highwater"));
+        double tidalhour = DoubleParser.parse(tides, "tidalhour").orElse(3600.0);
+        if (tidalhour <= 0) {
+            throw new IOException("Malformed Definition File - " + name + " tidalhour must be greater than zero");
+        }
+        JsonArray hoursarray = tides.getJsonArray("hours");
+        if (hoursarray == null || hoursarray.size() != TIDALHOURS) {
+            throw new IOException("Malformed Definition File - " + name + " hours must contain " + TIDALHOURS + " arrays (HW-6 to HW+6)");
+        }
+        List<FlowKeyframe> keyframes = new ArrayList<>();
+        for (int hour = 0; hour < TIDALHOURS; hour++) {
+            JsonValue hourv = hoursarray.get(hour);
+            if (hourv.getValueType() != JsonValue.ValueType.ARRAY) {
+                throw new IOException("Malformed Definition File - " + name + " hours array contains items other that flow arrays");
+            }
+            keyframes.add(new FlowKeyframe(highwater + (hour - 6) * tidalhour,
+                    createFlowComponentSet(controllersupplier, (JsonArray) hourv, name)));
+        }
+        return keyframes;
+    }
+
+    private static FlowComponentSet createFlowComponentSet(Supplier<Controller> controllersupplier,
+            JsonArray componentsarray, String name) throws IOException {
+        FlowComponentSet components = new FlowComponentSet();
+        for (JsonValue componentv : componentsarray) {
+            if (componentv.getValueType() == JsonValue.ValueType.OBJECT) {
+                components.add(FlowComponentFactory.createflowelement(controllersupplier, (JsonObject) componentv));
+            } else {
+                throw new IOException("Malformed Definition File - " + name + " components array contains items other that flow objects");
+            }
+        }
+        return components;
+    }
+}
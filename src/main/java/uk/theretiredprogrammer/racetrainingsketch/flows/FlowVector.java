@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+
+/**
+ * A mutable flow value, held as its east and north components, into which
+ * flows are looked up without any allocation.
+ *
+ * The components follow the convention used for polars - u is speed *
+ * sin(angle) and v is speed * cos(angle), where the angle is the direction
+ * the flow comes from.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FlowVector {
+
+    public double u;
+    public double v;
+
+    public void set(double u, double v) {
+        this.u = u;
+        this.v = v;
+    }
+
+    public double getSpeed() {
+        return Math.sqrt(u * u + v * v);
+    }
+
+    public double getDegrees() {
+        return Math.toDegrees(Math.atan2(u, v));
+    }
+
+    public Angle getAngle() {
+        return new Angle(getDegrees());
+    }
+
+    public SpeedPolar getSpeedPolar() {
+        return new SpeedPolar(getSpeed(), getAngle());
+    }
+}
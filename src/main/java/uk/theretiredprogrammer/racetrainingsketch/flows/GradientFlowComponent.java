@@ -19,36 +19,55 @@ import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
 import java.io.IOException;
 import java.util.function.Supplier;
 import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
 import uk.theretiredprogrammer.racetrainingsketch.core.Gradient;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
- * The EastWestGradientFlow Class - represents a flow with differing parameters
- * (direction and speed) in a east-west direction. Intermediate positions are
- * interpolated to provide the changing flow.
+ * The GradientFlow Class - represents a flow from a single direction, whose
+ * speed changes across the flow. The speeds of the gradient are equally
+ * spaced from the west to the east edge of the area (for a flow from the north
+ * or south) or from the south to the north edge (for a flow from the east or
+ * west). Intermediate positions are interpolated to provide the changing
+ * flow.
+ *
+ * The gradient is compiled into a table of speeds, so a lookup is an index
+ * calculation and an interpolation.
  *
  * @author Richard Linsdale (richard at theretiredprogrammer.uk)
  */
-public class GradientFlowComponent extends FlowComponent{
-    
+public class GradientFlowComponent extends FlowComponent {
+
     private Gradient gradient;
+    private double directionsin;
+    private double directioncos;
 
     /**
      * Constructor
      *
-     * @param name the name
-     * @param scenario the field of play
+     * @param controllersupplier the controller supplier
+     * @param paramsobj the definition parameters
+     * @throws IOException if problems
      */
     public GradientFlowComponent(Supplier<Controller>controllersupplier, JsonObject paramsobj) throws IOException {
         super(controllersupplier, paramsobj);
         gradient = Gradient.parse(paramsobj, "gradient").orElse(new Gradient());
+        setTable();
     }
     
     @Override
     public void change(JsonObject params) throws IOException {
         super.change(params);
         gradient = Gradient.parse(params, "gradient").orElse(gradient);
+        setTable();
+    }
+
+    private void setTable() throws IOException {
+        gradient.compile(getArea());
+        Angle direction = gradient.getMeanFlowDirection();
+        directionsin = Math.sin(direction.getRadians());
+        directioncos = Math.cos(direction.getRadians());
     }
 
     @Override
@@ -56,4 +75,11 @@ public class GradientFlowComponent extends FlowComponent{
         testLocationWithinArea(pos);
         return gradient.getFlow(pos);
     }
+
+    @Override
+    void getFlow(double x, double y, FlowVector result) throws IOException {
+        testLocationWithinArea(x, y);
+        double speed = gradient.getSpeed(x, y);
+        result.set(speed * directionsin, speed * directioncos);
+    }
 }
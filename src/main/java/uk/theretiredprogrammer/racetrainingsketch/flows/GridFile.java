@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A gridded flow dataset (eg the output of a CFD or weather model), held in a
+ * file and read through a memory mapping, so the data is held outside the
+ * heap and is only read from the file as it is used.
+ *
+ * The grid file is a compact binary file: a header (the magic number, the
+ * number of columns, rows and slices, and the west edge, south edge and
+ * spacing of the grid, in metres) followed by the u and v components of the
+ * flow (floats, knots) at each point - slice by slice, row by row from the
+ * south, and west to east along each row.
+ *
+ * A CSV file can be used in place of a grid file; it is converted into a grid
+ * file (alongside it, with the extension .rtg) the first time it is used, and
+ * again if it is changed. Each line of the CSV file is x,y,speed,from or
+ * slice,x,y,speed,from - lines which do not start with a number (eg headings)
+ * are ignored. The points must make a complete grid, with the same spacing in
+ * both directions.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class GridFile {
+
+    private final static int MAGIC = 0x52544731; // RTG1
+    private final static int HEADERSIZE = 4 * 4 + 3 * 8;
+    private final static Map<Path, GridFile> OPENFILES = new HashMap<>();
+
+    /**
+     * Open a grid file (or CSV file). A file which is already open is shared,
+     * unless it has been changed since it was opened.
+     *
+     * @param path the file path
+     * @return the grid file
+     * @throws IOException if problems
+     */
+    static synchronized GridFile open(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("Malformed Definition file - grid file not found " + path);
+        }
+        Path gridpath = path.toString().toLowerCase().endsWith(".csv") ? convert(path) : path;
+        Path key = gridpath.toRealPath();
+        long modified = Files.getLastModifiedTime(key).toMillis();
+        GridFile gridfile = OPENFILES.get(key);
+        if (gridfile == null || gridfile.modified != modified) {
+            gridfile = new GridFile(key, modified);
+            OPENFILES.put(key, gridfile);
+        }
+        return gridfile;
+    }
+
+    private final long modified;
+    private final int columns;
+    private final int rows;
+    private final int slices;
+    private final double west;
+    private final double south;
+    private final double spacing;
+    private final FloatBuffer data;
+
+    private GridFile(Path path, long modified) throws IOException {
+        this.modified = modified;
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADERSIZE) {
+                throw new IOException("Malformed grid file - missing header " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Malformed grid file - not a grid file " + path);
+            }
+            columns = buffer.getInt(4);
+            rows = buffer.getInt(8);
+            slices = buffer.getInt(12);
+            west = buffer.getDouble(16);
+            south = buffer.getDouble(24);
+            spacing = buffer.getDouble(32);
+            if (columns < 1 || rows < 1 || slices < 1 || spacing <= 0
+                    || channel.size() != HEADERSIZE + 8L * columns * rows * slices) {
+                throw new IOException("Malformed grid file - inconsistent size " + path);
+            }
+            buffer.position(HEADERSIZE);
+            data = buffer.slice().asFloatBuffer();
+        }
+    }
+
+    int getSlices() {
+        return slices;
+    }
+
+    /**
+     * Get the flow at a location - interpolated between the grid points.
+     * Locations outside the grid take the flow at its edge.
+     *
+     * @param slice the slice
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @param result the flow
+     */
+    void getFlow(int slice, double x, double y, FlowVector result) {
+        double px = Math.max(0, Math.min(columns - 1, (x - west) / spacing));
+        double py = Math.max(0, Math.min(rows - 1, (y - south) / spacing));
+        int w = Math.min((int) px, Math.max(0, columns - 2));
+        int h = Math.min((int) py, Math.max(0, rows - 2));
+        int w1 = Math.min(w + 1, columns - 1);
+        int h1 = Math.min(h + 1, rows - 1);
+        double tw = px - w;
+        double th = py - h;
+        int base = slice * rows * columns;
+        int sw = 2 * (base + h * columns + w);
+        int se = 2 * (base + h * columns + w1);
+        int nw = 2 * (base + h1 * columns + w);
+        int ne = 2 * (base + h1 * columns + w1);
+        result.set(FlowGrid.bilinear(data.get(sw), data.get(se), data.get(nw), data.get(ne), tw, th),
+                FlowGrid.bilinear(data.get(sw + 1), data.get(se + 1), data.get(nw + 1), data.get(ne + 1), tw, th));
+    }
+
+    // convert a CSV file into a grid file, unless it has already been done
+    private static Path convert(Path csvpath) throws IOException {
+        String name = csvpath.getFileName().toString();
+        Path gridpath = csvpath.resolveSibling(name.substring(0, name.length() - 4) + ".rtg");
+        if (Files.isRegularFile(gridpath)
+                && Files.getLastModifiedTime(gridpath).compareTo(Files.getLastModifiedTime(csvpath)) >= 0) {
+            return gridpath;
+        }
+        // first pass - find the extent of the grid
+        double minx = Double.MAX_VALUE;
+        double maxx = -Double.MAX_VALUE;
+        double miny = Double.MAX_VALUE;
+        double maxy = -Double.MAX_VALUE;
+        int maxslice = 0;
+        long points = 0;
+        try ( BufferedReader rdr = Files.newBufferedReader(csvpath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = rdr.readLine()) != null) {
+                double[] values = parseLine(line, csvpath);
+                if (values != null) {
+                    minx = Math.min(minx, values[1]);
+                    maxx = Math.max(maxx, values[1]);
+                    miny = Math.min(miny, values[2]);
+                    maxy = Math.max(maxy, values[2]);
+                    maxslice = Math.max(maxslice, (int) values[0]);
+                    points++;
+                }
+            }
+        }
+        if (points == 0) {
+            throw new IOException("Malformed CSV grid file - no points " + csvpath);
+        }
+        double spacing = findSpacing(csvpath, minx, miny);
+        int columns = (int) Math.round((maxx - minx) / spacing) + 1;
+        int rows = (int) Math.round((maxy - miny) / spacing) + 1;
+        int slices = maxslice + 1;
+        if (points != (long) columns * rows * slices) {
+            throw new IOException("Malformed CSV grid file - the points do not make a complete grid " + csvpath);
+        }
+        // second pass - write the grid file, through a mapping, so the grid is
+        // not held on the heap
+        Path temppath = Files.createTempFile(csvpath.toAbsolutePath().getParent(), name, ".tmp");
+        try {
+            try ( FileChannel channel = FileChannel.open(temppath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADERSIZE + 8L * points);
+                buffer.putInt(MAGIC).putInt(columns).putInt(rows).putInt(slices)
+                        .putDouble(minx).putDouble(miny).putDouble(spacing);
+                ByteBuffer databuffer = buffer.slice();
+                BitSet filled = new BitSet((int) points);
+                try ( BufferedReader rdr = Files.newBufferedReader(csvpath, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = rdr.readLine()) != null) {
+                        double[] values = parseLine(line, csvpath);
+                        if (values != null) {
+                            int w = getIndex(values[1], minx, spacing, csvpath);
+                            int h = getIndex(values[2], miny, spacing, csvpath);
+                            int index = ((int) values[0] * rows + h) * columns + w;
+                            if (filled.get(index)) {
+                                throw new IOException("Malformed CSV grid file - duplicate point in " + line);
+                            }
+                            filled.set(index);
+                            double radians = Math.toRadians(values[4]);
+                            databuffer.putFloat(8 * index, (float) (values[3] * Math.sin(radians)));
+                            databuffer.putFloat(8 * index + 4, (float) (values[3] * Math.cos(radians)));
+                        }
+                    }
+                }
+                buffer.force();
+            }
+            Files.move(temppath, gridpath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temppath);
+        }
+        return gridpath;
+    }
+
+    // the spacing is the smallest step from the west (or south) edge
+    private static double findSpacing(Path csvpath, double minx, double miny) throws IOException {
+        double spacing = Double.MAX_VALUE;
+        try ( BufferedReader rdr = Files.newBufferedReader(csvpath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = rdr.readLine()) != null) {
+                double[] values = parseLine(line, csvpath);
+                if (values != null) {
+                    double dx = values[1] - minx;
+                    double dy = values[2] - miny;
+                    spacing = dx > 0 ? Math.min(spacing, dx) : spacing;
+                    spacing = dy > 0 ? Math.min(spacing, dy) : spacing;
+                }
+            }
+        }
+        return spacing == Double.MAX_VALUE ? 1 : spacing;
+    }
+
+    private static int getIndex(double value, double min, double spacing, Path csvpath) throws IOException {
+        double index = (value - min) / spacing;
+        long rounded = Math.round(index);
+        if (Math.abs(index - rounded) > 1E-6) {
+            throw new IOException("Malformed CSV grid file - point not on the grid at " + value + " in " + csvpath);
+        }
+        return (int) rounded;
+    }
+
+    // returns slice, x, y, speed, from - or null if not a data line
+    private static double[] parseLine(String line, Path csvpath) throws IOException {
+        String[] fields = line.trim().split("\\s*,\\s*");
+        if (fields.length == 0 || fields[0].isEmpty()
+                || !(Character.isDigit(fields[0].charAt(0)) || "-+.".indexOf(fields[0].charAt(0)) >= 0)) {
+            return null;
+        }
+        try {
+            switch (fields.length) {
+                case 4:
+                    return new double[]{0, Double.parseDouble(fields[0]), Double.parseDouble(fields[1]),
+                        Double.parseDouble(fields[2]), Double.parseDouble(fields[3])};
+                case 5:
+                    int slice = Integer.parseInt(fields[0]);
+                    if (slice < 0) {
+                        throw new IOException("Malformed CSV grid file - negative slice in " + line);
+                    }
+                    return new double[]{slice, Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+                        Double.parseDouble(fields[3]), Double.parseDouble(fields[4])};
+                default:
+                    throw new IOException("Malformed CSV grid file - expecting 4 or 5 values in " + line + " in " + csvpath);
+            }
+        } catch (NumberFormatException ex) {
+            throw new IOException("Malformed CSV grid file - bad number in " + line + " in " + csvpath);
+        }
+    }
+}
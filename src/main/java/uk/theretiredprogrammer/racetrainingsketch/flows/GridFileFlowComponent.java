@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.IntegerParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+import uk.theretiredprogrammer.racetrainingsketch.core.StringParser;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * The GridFileFlow Class - represents a flow defined by a gridded dataset held
+ * in a file (see GridFile). The grid uses the same coordinates as the sailing
+ * area. A dataset with several time slices can be used in keyframes, with a
+ * component for each slice.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GridFileFlowComponent extends FlowComponent {
+
+    private final Supplier<Controller> controllersupplier;
+    private String file;
+    private int slice;
+    private GridFile gridfile;
+
+    public GridFileFlowComponent(Supplier<Controller> controllersupplier, JsonObject paramsobj) throws IOException {
+        super(controllersupplier, paramsobj);
+        this.controllersupplier = controllersupplier;
+        file = StringParser.parse(paramsobj, "file").orElseThrow(
+                () -> new IOException("Malformed Definition file - gridfile flow missing file"));
+        slice = IntegerParser.parse(paramsobj, "slice").orElse(0);
+        setGridFile();
+    }
+
+    @Override
+    public void change(JsonObject params) throws IOException {
+        super.change(params);
+        file = StringParser.parse(params, "file").orElse(file);
+        slice = IntegerParser.parse(params, "slice").orElse(slice);
+        setGridFile();
+    }
+
+    private void setGridFile() throws IOException {
+        gridfile = GridFile.open(controllersupplier.get().resolvePath(file));
+        if (slice < 0 || slice >= gridfile.getSlices()) {
+            throw new IOException("Malformed Definition file - gridfile flow slice " + slice + " is not in " + file);
+        }
+    }
+
+    @Override
+    public SpeedPolar getFlow(Location pos) throws IOException {
+        testLocationWithinArea(pos);
+        FlowVector flow = new FlowVector();
+        gridfile.getFlow(slice, pos.getX(), pos.getY(), flow);
+        return flow.getSpeedPolar();
+    }
+
+    @Override
+    void getFlow(double x, double y, FlowVector result) throws IOException {
+        testLocationWithinArea(x, y);
+        gridfile.getFlow(slice, x, y, result);
+    }
+}
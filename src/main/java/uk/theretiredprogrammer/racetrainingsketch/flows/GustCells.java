@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.IntegerParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.RandomSource;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+
+/**
+ * The moving gust and lull cells of a flow.
+ *
+ * Each cell is placed at random in the area, with a random change of speed
+ * (up to gustspeed knots faster or slower) and of direction (up to gustangle
+ * degrees either way). It moves with the flow where it was placed, growing
+ * and then fading over its lifetime, and is replaced by a new cell when its
+ * lifetime ends or it has left the area. The cells start at random points in
+ * their lifetimes, so they do not all fade together.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class GustCells {
+
+    private final int count;
+    private final double speed;
+    private final double angle;
+    private final double radius;
+    private final double length;
+    private final double lifetime;
+    //
+    private final Area area;
+    private final RandomSource random;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx; // metres per second
+    private final double[] vy;
+    private final double[] age;
+    private final double[] strength; // the speed change at the peak of the cell's life
+    private final double[] swing; // the angle change at the peak of the cell's life
+    private final FlowVector flow = new FlowVector();
+    private GustField field;
+
+    /**
+     * Create the gust cells of a flow, if the flow has any.
+     *
+     * Parameters which are not defined keep their previous values; if no
+     * parameter has changed the previous cells are returned unchanged.
+     *
+     * @param paramsobj the flow parameters
+     * @param previous the previous cells, or null if none
+     * @param area the area of the flow
+     * @param random the random source for new cells
+     * @param blend the flow (without gusts) which moves the cells
+     * @return the cells, or null if the flow has no gust cells
+     * @throws IOException if problems
+     */
+    static GustCells create(JsonObject paramsobj, GustCells previous, Area area, RandomSource random, FlowBlend blend) throws IOException {
+        check(paramsobj, previous);
+        int count = IntegerParser.parse(paramsobj, "gustcount").orElse(previous == null ? 0 : previous.count);
+        double speed = DoubleParser.parse(paramsobj, "gustspeed").orElse(previous == null ? 0.0 : previous.speed);
+        double angle = DoubleParser.parse(paramsobj, "gustangle").orElse(previous == null ? 0.0 : previous.angle);
+        double radius = DoubleParser.parse(paramsobj, "gustradius").orElse(previous == null ? 50.0 : previous.radius);
+        double length = DoubleParser.parse(paramsobj, "gustlength").orElse(previous == null ? radius : previous.length);
+        double lifetime = DoubleParser.parse(paramsobj, "gustlifetime").orElse(previous == null ? 300.0 : previous.lifetime);
+        if (count == 0) {
+            return null;
+        }
+        if (previous != null && count == previous.count && speed == previous.speed && angle == previous.angle
+                && radius == previous.radius && length == previous.length && lifetime == previous.lifetime) {
+            return previous;
+        }
+        return new GustCells(count, speed, angle, radius, length, lifetime, area, random, blend);
+    }
+
+    /**
+     * Check the gust cell parameters of a flow, without creating the cells.
+     *
+     * @param paramsobj the flow parameters
+     * @param previous the previous cells, or null if none
+     * @throws IOException if problems
+     */
+    static void check(JsonObject paramsobj, GustCells previous) throws IOException {
+        int count = IntegerParser.parse(paramsobj, "gustcount").orElse(previous == null ? 0 : previous.count);
+        DoubleParser.parse(paramsobj, "gustspeed");
+        DoubleParser.parse(paramsobj, "gustangle");
+        double radius = DoubleParser.parse(paramsobj, "gustradius").orElse(previous == null ? 50.0 : previous.radius);
+        double length = DoubleParser.parse(paramsobj, "gustlength").orElse(previous == null ? radius : previous.length);
+        double lifetime = DoubleParser.parse(paramsobj, "gustlifetime").orElse(previous == null ? 300.0 : previous.lifetime);
+        if (count < 0) {
+            throw new IOException("Malformed Definition file - gustcount must not be negative");
+        }
+        if (radius <= 0 || length <= 0 || lifetime <= 0) {
+            throw new IOException("Malformed Definition file - gustradius, gustlength and gustlifetime must be greater than zero");
+        }
+    }
+
+    private GustCells(int count, double speed, double angle, double radius, double length, double lifetime,
+            Area area, RandomSource random, FlowBlend blend) {
+        this.count = count;
+        this.speed = speed;
+        this.angle = angle;
+        this.radius = radius;
+        this.length = length;
+        this.lifetime = lifetime;
+        this.area = area;
+        this.random = random;
+        x = new double[count];
+        y = new double[count];
+        vx = new double[count];
+        vy = new double[count];
+        age = new double[count];
+        strength = new double[count];
+        swing = new double[count];
+        for (int i = 0; i < count; i++) {
+            place(i, random.nextDouble() * lifetime, blend);
+        }
+        setField();
+    }
+
+    private void place(int i, double initialage, FlowBlend blend) {
+        x[i] = area.getBottomleft().getX() + random.nextDouble() * area.getWidth();
+        y[i] = area.getBottomleft().getY() + random.nextDouble() * area.getHeight();
+        age[i] = initialage;
+        strength[i] = speed * (random.nextDouble() * 2 - 1);
+        swing[i] = angle * (random.nextDouble() * 2 - 1);
+        // the cell moves with the flow - ie away from the direction the flow comes from
+        blend.getFlow(x[i], y[i], flow);
+        vx[i] = -SpeedPolar.convertKnots2MetresPerSecond(flow.u);
+        vy[i] = -SpeedPolar.convertKnots2MetresPerSecond(flow.v);
+    }
+
+    /**
+     * Move the cells on by a time step.
+     *
+     * @param dt the time step (seconds)
+     * @param blend the flow (without gusts) which moves new cells
+     */
+    void timerAdvance(double dt, FlowBlend blend) {
+        double margin = Math.max(radius, length);
+        double west = area.getBottomleft().getX() - margin;
+        double south = area.getBottomleft().getY() - margin;
+        double east = west + area.getWidth() + margin * 2;
+        double north = south + area.getHeight() + margin * 2;
+        for (int i = 0; i < count; i++) {
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            age[i] += dt;
+            if (age[i] >= lifetime || x[i] < west || x[i] > east || y[i] < south || y[i] > north) {
+                place(i, 0, blend);
+            }
+        }
+        setField();
+    }
+
+    private void setField() {
+        double[] alongx = new double[count];
+        double[] alongy = new double[count];
+        double[] speedchange = new double[count];
+        double[] anglechange = new double[count];
+        for (int i = 0; i < count; i++) {
+            double v = Math.sqrt(vx[i] * vx[i] + vy[i] * vy[i]);
+            alongx[i] = v == 0 ? 0 : vx[i] / v;
+            alongy[i] = v == 0 ? 1 : vy[i] / v;
+            double envelope = Math.sin(Math.PI * age[i] / lifetime);
+            speedchange[i] = strength[i] * envelope;
+            anglechange[i] = swing[i] * envelope;
+        }
+        field = new GustField(area, count, x.clone(), y.clone(), alongx, alongy, speedchange, anglechange, length, radius);
+    }
+
+    /**
+     * Get the cells as they are now.
+     *
+     * @return the gust field
+     */
+    GustField getField() {
+        return field;
+    }
+
+    void writeState(DataOutput out) throws IOException {
+        out.writeLong(random.getState());
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(x[i]);
+            out.writeDouble(y[i]);
+            out.writeDouble(vx[i]);
+            out.writeDouble(vy[i]);
+            out.writeDouble(age[i]);
+            out.writeDouble(strength[i]);
+            out.writeDouble(swing[i]);
+        }
+    }
+
+    void readState(DataInput in) throws IOException {
+        random.setState(in.readLong());
+        for (int i = 0; i < count; i++) {
+            x[i] = in.readDouble();
+            y[i] = in.readDouble();
+            vx[i] = in.readDouble();
+            vy[i] = in.readDouble();
+            age[i] = in.readDouble();
+            strength[i] = in.readDouble();
+            swing[i] = in.readDouble();
+        }
+        setField();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+
+/**
+ * The gust and lull cells at a time - each an elliptical change to the flow
+ * speed and direction, strongest at its centre and fading to nothing at its
+ * edge.
+ *
+ * The cells are held in a spatial hash - buckets at least as large as the
+ * largest cell - so a lookup only tests the cells in the nine buckets around
+ * the location, however many cells there are.
+ *
+ * Once created a field is not changed, so the flow at a time can be looked up
+ * from it while the simulation moves on.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GustField {
+
+    private final static int MAXBUCKETS = 256;
+
+    private final int count;
+    private final double[] x;
+    private final double[] y;
+    private final double[] alongx; // unit vector along the cell (its direction of travel)
+    private final double[] alongy;
+    private final double[] speedchange; // knots
+    private final double[] anglechange; // degrees
+    private final double invlength2; // 1/(semi axis along the cell)^2
+    private final double invradius2; // 1/(semi axis across the cell)^2
+    //
+    private final double west;
+    private final double south;
+    private final double bucketsize;
+    private final int bucketsx;
+    private final int bucketsy;
+    private final int[] bucketstart; // index into bucketcells, for each bucket (and the end)
+    private final int[] bucketcells;
+
+    GustField(Area area, int count, double[] x, double[] y, double[] alongx, double[] alongy,
+            double[] speedchange, double[] anglechange, double length, double radius) {
+        this.count = count;
+        this.x = x;
+        this.y = y;
+        this.alongx = alongx;
+        this.alongy = alongy;
+        this.speedchange = speedchange;
+        this.anglechange = anglechange;
+        this.invlength2 = 1 / (length * length);
+        this.invradius2 = 1 / (radius * radius);
+        west = area.getBottomleft().getX();
+        south = area.getBottomleft().getY();
+        bucketsize = Math.max(Math.max(length, radius),
+                Math.max(area.getWidth(), area.getHeight()) / MAXBUCKETS);
+        bucketsx = Math.max(1, (int) Math.ceil(area.getWidth() / bucketsize));
+        bucketsy = Math.max(1, (int) Math.ceil(area.getHeight() / bucketsize));
+        // counting sort of the cells into their buckets
+        bucketstart = new int[bucketsx * bucketsy + 1];
+        bucketcells = new int[count];
+        int[] bucket = new int[count];
+        for (int i = 0; i < count; i++) {
+            bucket[i] = getBucketY(y[i]) * bucketsx + getBucketX(x[i]);
+            bucketstart[bucket[i] + 1]++;
+        }
+        for (int b = 0; b < bucketsx * bucketsy; b++) {
+            bucketstart[b + 1] += bucketstart[b];
+        }
+        int[] next = bucketstart.clone();
+        for (int i = 0; i < count; i++) {
+            bucketcells[next[bucket[i]]++] = i;
+        }
+    }
+
+    private int getBucketX(double px) {
+        return Math.max(0, Math.min(bucketsx - 1, (int) Math.floor((px - west) / bucketsize)));
+    }
+
+    private int getBucketY(double py) {
+        return Math.max(0, Math.min(bucketsy - 1, (int) Math.floor((py - south) / bucketsize)));
+    }
+
+    /**
+     * Apply the gusts and lulls at a location to a flow.
+     *
+     * @param px the x coordinate of the location
+     * @param py the y coordinate of the location
+     * @param result the flow, which is changed
+     */
+    void apply(double px, double py, FlowVector result) {
+        double dspeed = 0;
+        double dangle = 0;
+        int bx = getBucketX(px);
+        int by = getBucketY(py);
+        for (int j = Math.max(0, by - 1); j <= Math.min(bucketsy - 1, by + 1); j++) {
+            for (int i = Math.max(0, bx - 1); i <= Math.min(bucketsx - 1, bx + 1); i++) {
+                int b = j * bucketsx + i;
+                for (int k = bucketstart[b]; k < bucketstart[b + 1]; k++) {
+                    int c = bucketcells[k];
+                    double dx = px - x[c];
+                    double dy = py - y[c];
+                    double along = dx * alongx[c] + dy * alongy[c];
+                    double across = dx * alongy[c] - dy * alongx[c];
+                    double r2 = along * along * invlength2 + across * across * invradius2;
+                    if (r2 < 1) {
+                        double weight = (1 - r2) * (1 - r2);
+                        dspeed += speedchange[c] * weight;
+                        dangle += anglechange[c] * weight;
+                    }
+                }
+            }
+        }
+        if (dspeed == 0 && dangle == 0) {
+            return;
+        }
+        double speed = Math.sqrt(result.u * result.u + result.v * result.v);
+        if (speed == 0) {
+            return;
+        }
+        double scale = Math.max(0, speed + dspeed) / speed;
+        double radians = Math.toRadians(dangle);
+        double sin = Math.sin(radians) * scale;
+        double cos = Math.cos(radians) * scale;
+        // rotate clockwise (an increase in the flow angle) and scale
+        result.set(result.u * cos + result.v * sin, result.v * cos - result.u * sin);
+    }
+
+    /**
+     * Get the number of cells.
+     *
+     * @return the number of cells
+     */
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+import uk.theretiredprogrammer.racetrainingsketch.core.MeanAngle;
+
+/**
+ * An adaptive flow grid - a quadtree of cells, which is only refined where
+ * the flow varies, so that uniform regions are held as a few large cells.
+ *
+ * A cell is divided into four if its size is greater than the minimum cell
+ * size, and either the edge of a flow component passes through it, or the
+ * flow at its centre or at the midpoint of any side differs from the flow
+ * interpolated from its corners by more than the tolerance. The area is
+ * always divided to a minimum depth, so that small features are not missed.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class QuadtreeFlowGrid extends FlowGrid {
+
+    private static final int MINDEPTH = 3;
+    // the cells are divided in parallel down to this depth
+    private static final int PARALLELDEPTH = 2;
+
+    private final FlowComponentSet flowset;
+    private final double mincellsize;
+    private final double tolerance;
+    private final Cell root;
+    private final int leaves;
+    private final Angle meanangle;
+
+    /**
+     * Constructor
+     *
+     * @param area the area
+     * @param flowset the flow components
+     * @param widthsteps the number of steps across the area, over which the
+     * mean angle is taken
+     * @param heightsteps the number of steps up the area, over which the mean
+     * angle is taken
+     * @param mincellsize the minimum cell size
+     * @param tolerance the tolerance for interpolated flows
+     * @throws IOException if problems
+     */
+    QuadtreeFlowGrid(Area area, FlowComponentSet flowset, int widthsteps, int heightsteps,
+            double mincellsize, double tolerance) throws IOException {
+        super(area);
+        this.flowset = flowset;
+        this.mincellsize = mincellsize;
+        this.tolerance = tolerance;
+        double x0 = area.getBottomleft().getX();
+        double y0 = area.getBottomleft().getY();
+        double x1 = x0 + area.getWidth();
+        double y1 = y0 + area.getHeight();
+        FlowVector sw = new FlowVector();
+        FlowVector se = new FlowVector();
+        FlowVector nw = new FlowVector();
+        FlowVector ne = new FlowVector();
+        sample(flowset, x0, y0, sw);
+        sample(flowset, x1, y0, se);
+        sample(flowset, x0, y1, nw);
+        sample(flowset, x1, y1, ne);
+        root = build(x0, y0, area.getWidth(), area.getHeight(), 0, sw, se, nw, ne);
+        leaves = countLeaves(root);
+        meanangle = calcMeanAngle(widthsteps, heightsteps);
+    }
+
+    // the mean is taken over the flows at the points of a uniform grid with
+    // the same steps, exactly as the uniform grid takes it, so that it does
+    // not depend on the type of grid; the rows are summed in parallel, and
+    // then added in order, so that the mean does not depend on the threads
+    // used
+    private Angle calcMeanAngle(int widthsteps, int heightsteps) throws IOException {
+        double wstepsize = area.getWidth() / widthsteps;
+        double hstepsize = area.getHeight() / heightsteps;
+        double wpos = area.getBottomleft().getX();
+        double hpos = area.getBottomleft().getY();
+        MeanAngle[] rowmeans;
+        try {
+            rowmeans = IntStream.rangeClosed(0, heightsteps).parallel()
+                    .mapToObj(h -> calcRowMeanAngle(hpos + hstepsize * h, wpos, wstepsize, widthsteps))
+                    .toArray(MeanAngle[]::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        MeanAngle mean = new MeanAngle();
+        for (MeanAngle rowmean : rowmeans) {
+            mean.add(rowmean);
+        }
+        return mean.getMean();
+    }
+
+    private MeanAngle calcRowMeanAngle(double y, double wpos, double wstepsize, int widthsteps) {
+        MeanAngle rowmean = new MeanAngle();
+        FlowVector flow = new FlowVector();
+        for (int w = 0; w <= widthsteps; w++) {
+            try {
+                sample(flowset, wpos + wstepsize * w, y, flow);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            rowmean.add(flow.u, flow.v, 1);
+        }
+        return rowmean;
+    }
+
+    private int countLeaves(Cell cell) {
+        if (cell.children == null) {
+            return 1;
+        }
+        int count = 0;
+        for (Cell child : cell.children) {
+            count += countLeaves(child);
+        }
+        return count;
+    }
+
+    private Cell build(double x0, double y0, double w, double h, int depth,
+            FlowVector sw, FlowVector se, FlowVector nw, FlowVector ne) throws IOException {
+        Cell cell = new Cell(x0, y0, w, h, sw, se, nw, ne);
+        if (w <= mincellsize && h <= mincellsize) {
+            return cell;
+        }
+        double xm = x0 + w / 2;
+        double ym = y0 + h / 2;
+        FlowVector s = new FlowVector();
+        FlowVector n = new FlowVector();
+        FlowVector west = new FlowVector();
+        FlowVector e = new FlowVector();
+        FlowVector c = new FlowVector();
+        sample(flowset, xm, y0, s);
+        sample(flowset, xm, y0 + h, n);
+        sample(flowset, x0, ym, west);
+        sample(flowset, x0 + w, ym, e);
+        sample(flowset, xm, ym, c);
+        if (depth >= MINDEPTH && !flowset.isEdgeWithin(x0, y0, x0 + w, y0 + h)
+                && isInterpolated(s, sw, se) && isInterpolated(n, nw, ne)
+                && isInterpolated(west, sw, nw) && isInterpolated(e, se, ne)
+                && isInterpolated(c, sw, se, nw, ne)) {
+            return cell;
+        }
+        IntStream children = IntStream.range(0, 4);
+        if (depth < PARALLELDEPTH) {
+            children = children.parallel();
+        }
+        try {
+            cell.children = children
+                    .mapToObj(i -> buildChild(i, x0, y0, w, h, depth, sw, se, nw, ne, s, n, west, e, c))
+                    .toArray(Cell[]::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return cell;
+    }
+
+    private Cell buildChild(int i, double x0, double y0, double w, double h, int depth,
+            FlowVector sw, FlowVector se, FlowVector nw, FlowVector ne,
+            FlowVector s, FlowVector n, FlowVector west, FlowVector e, FlowVector c) {
+        double xm = x0 + w / 2;
+        double ym = y0 + h / 2;
+        try {
+            switch (i) {
+                case 0:
+                    return build(x0, y0, w / 2, h / 2, depth + 1, sw, s, west, c);
+                case 1:
+                    return build(xm, y0, w / 2, h / 2, depth + 1, s, se, c, e);
+                case 2:
+                    return build(x0, ym, w / 2, h / 2, depth + 1, west, c, nw, n);
+                default:
+                    return build(xm, ym, w / 2, h / 2, depth + 1, c, e, n, ne);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // is the flow (at a midpoint) within tolerance of the mean of the flows
+    // at either end
+    private boolean isInterpolated(FlowVector flow, FlowVector a, FlowVector b) {
+        double du = flow.u - (a.u + b.u) / 2;
+        double dv = flow.v - (a.v + b.v) / 2;
+        return du * du + dv * dv <= tolerance * tolerance;
+    }
+
+    // is the flow (at the centre) within tolerance of the mean of the flows
+    // at the corners
+    private boolean isInterpolated(FlowVector flow, FlowVector sw, FlowVector se, FlowVector nw, FlowVector ne) {
+        double du = flow.u - (sw.u + se.u + nw.u + ne.u) / 4;
+        double dv = flow.v - (sw.v + se.v + nw.v + ne.v) / 4;
+        return du * du + dv * dv <= tolerance * tolerance;
+    }
+
+    @Override
+    void getFlow(double x, double y, FlowVector result) {
+        double cx = clampX(x);
+        double cy = clampY(y);
+        Cell cell = root;
+        while (cell.children != null) {
+            cell = cell.children[(cx < cell.x0 + cell.w / 2 ? 0 : 1) + (cy < cell.y0 + cell.h / 2 ? 0 : 2)];
+        }
+        double tw = (cx - cell.x0) / cell.w;
+        double th = (cy - cell.y0) / cell.h;
+        result.set(bilinear(cell.swu, cell.seu, cell.nwu, cell.neu, tw, th),
+                bilinear(cell.swv, cell.sev, cell.nwv, cell.nev, tw, th));
+    }
+
+    @Override
+    Angle getMeanAngle() {
+        return meanangle;
+    }
+
+    @Override
+    int getSize() {
+        return leaves * 4;
+    }
+
+    private static class Cell {
+
+        final double x0;
+        final double y0;
+        final double w;
+        final double h;
+        final double swu;
+        final double swv;
+        final double seu;
+        final double sev;
+        final double nwu;
+        final double nwv;
+        final double neu;
+        final double nev;
+        Cell[] children; // in the order sw, se, nw, ne; null for a leaf
+
+        Cell(double x0, double y0, double w, double h, FlowVector sw, FlowVector se, FlowVector nw, FlowVector ne) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.w = w;
+            this.h = h;
+            swu = sw.u;
+            swv = sw.v;
+            seu = se.u;
+            sev = se.v;
+            nwu = nw.u;
+            nwv = nw.v;
+            neu = ne.u;
+            nev = ne.v;
+        }
+    }
+}
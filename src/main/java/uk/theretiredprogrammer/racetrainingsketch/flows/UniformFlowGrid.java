@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+import uk.theretiredprogrammer.racetrainingsketch.core.MeanAngle;
+
+/**
+ * A flow grid with points at regular intervals over the area.
+ *
+ * The flows are held as east (u) and north (v) components, in rows (south
+ * to north) of widthsteps + 1 columns (west to east).
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class UniformFlowGrid extends FlowGrid {
+
+    private static final double EDGEALLOWANCE = 1E-6;
+
+    private final int widthsteps;
+    private final int heightsteps;
+    private final double wstepsize;
+    private final double hstepsize;
+    private final double[] flowu;
+    private final double[] flowv;
+    // the rows are filled in parallel; each row also has the mean angle of
+    // its flows, and the rows' means are then added in order, so that the
+    // mean angle does not depend on the threads used
+    private final MeanAngle[] rowmeans;
+    private Angle meanangle;
+
+    UniformFlowGrid(Area area, FlowComponentSet flowset, int widthsteps, int heightsteps) throws IOException {
+        super(area);
+        this.widthsteps = widthsteps;
+        this.heightsteps = heightsteps;
+        wstepsize = area.getWidth() / widthsteps;
+        hstepsize = area.getHeight() / heightsteps;
+        flowu = new double[(widthsteps + 1) * (heightsteps + 1)];
+        flowv = new double[(widthsteps + 1) * (heightsteps + 1)];
+        rowmeans = Stream.generate(MeanAngle::new).limit(heightsteps + 1).toArray(MeanAngle[]::new);
+        fill(flowset, 0, heightsteps, 0, widthsteps);
+    }
+
+    private UniformFlowGrid(UniformFlowGrid grid) {
+        super(grid.area);
+        widthsteps = grid.widthsteps;
+        heightsteps = grid.heightsteps;
+        wstepsize = grid.wstepsize;
+        hstepsize = grid.hstepsize;
+        flowu = grid.flowu.clone();
+        flowv = grid.flowv.clone();
+        rowmeans = Stream.of(grid.rowmeans).map(MeanAngle::new).toArray(MeanAngle[]::new);
+        meanangle = grid.meanangle;
+    }
+
+    /**
+     * Create a copy of the grid, with the flows at the grid points within the
+     * changed area recalculated, and the mean angle updated by replacing their
+     * contributions.
+     *
+     * @param flowset the flow components
+     * @param changedarea the area in which the flow may have changed
+     * @return the updated grid
+     * @throws IOException if problems
+     */
+    @Override
+    FlowGrid update(FlowComponentSet flowset, Area changedarea) throws IOException {
+        double x0 = (changedarea.getBottomleft().getX() - area.getBottomleft().getX()) / wstepsize;
+        double y0 = (changedarea.getBottomleft().getY() - area.getBottomleft().getY()) / hstepsize;
+        // include points on the edges of the changed area, allowing for rounding
+        int w0 = Math.max(0, (int) Math.ceil(x0 - EDGEALLOWANCE));
+        int w1 = Math.min(widthsteps, (int) Math.floor(x0 + changedarea.getWidth() / wstepsize + EDGEALLOWANCE));
+        int h0 = Math.max(0, (int) Math.ceil(y0 - EDGEALLOWANCE));
+        int h1 = Math.min(heightsteps, (int) Math.floor(y0 + changedarea.getHeight() / hstepsize + EDGEALLOWANCE));
+        UniformFlowGrid updated = new UniformFlowGrid(this);
+        if (w0 <= w1 && h0 <= h1) {
+            updated.fill(flowset, h0, h1, w0, w1);
+        }
+        return updated;
+    }
+
+    private void fill(FlowComponentSet flowset, int h0, int h1, int w0, int w1) throws IOException {
+        try {
+            IntStream.rangeClosed(h0, h1).parallel()
+                    .forEach(h -> fillRow(flowset, h, w0, w1));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        MeanAngle mean = new MeanAngle();
+        for (MeanAngle rowmean : rowmeans) {
+            mean.add(rowmean);
+        }
+        meanangle = mean.getMean();
+    }
+
+    private void fillRow(FlowComponentSet flowset, int h, int w0, int w1) {
+        double y = area.getBottomleft().getY() + hstepsize * h;
+        double wpos = area.getBottomleft().getX();
+        FlowVector flow = new FlowVector();
+        for (int w = w0; w <= w1; w++) {
+            int i = h * (widthsteps + 1) + w;
+            rowmeans[h].add(flowu[i], flowv[i], -1);
+            try {
+                sample(flowset, wpos + wstepsize * w, y, flow);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            flowu[i] = flow.u;
+            flowv[i] = flow.v;
+            rowmeans[h].add(flow.u, flow.v, 1);
+        }
+    }
+
+    @Override
+    void getFlow(double x, double y, FlowVector result) {
+        double fw = (clampX(x) - area.getBottomleft().getX()) / wstepsize;
+        double fh = (clampY(y) - area.getBottomleft().getY()) / hstepsize;
+        int w = Math.min((int) fw, widthsteps - 1);
+        int h = Math.min((int) fh, heightsteps - 1);
+        double tw = fw - w;
+        double th = fh - h;
+        int sw = h * (widthsteps + 1) + w;
+        int nw = sw + widthsteps + 1;
+        result.set(bilinear(flowu[sw], flowu[sw + 1], flowu[nw], flowu[nw + 1], tw, th),
+                bilinear(flowv[sw], flowv[sw + 1], flowv[nw], flowv[nw + 1], tw, th));
+    }
+
+    @Override
+    Angle getMeanAngle() {
+        return meanangle;
+    }
+
+    @Override
+    int getSize() {
+        return flowu.length;
+    }
+}
@@ -16,6 +16,7 @@
 package uk.theretiredprogrammer.racetrainingsketch.flows;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.function.Supplier;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -27,9 +28,28 @@ import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
  * @author richard
  */
 public class WaterFlow extends Flow {
-    
+
+    /**
+     * Test if the definition file defines a water flow - either WATER
+     * components or WATER-TIDES.
+     *
+     * @param parsedjson the parsed definition file
+     * @return true if there is a water flow
+     */
+    public static boolean isDefined(JsonObject parsedjson) {
+        return parsedjson.getJsonArray("WATER") != null || parsedjson.getJsonObject("WATER-TIDES") != null;
+    }
+
     public static WaterFlow create(Supplier<Controller> controllersupplier, JsonObject parsedjson) throws IOException {
         JsonArray waterarray = parsedjson.getJsonArray("WATER");
+        JsonObject tides = parsedjson.getJsonObject("WATER-TIDES");
+        JsonObject watershiftparams = parsedjson.getJsonObject("WATER-SHIFTS");
+        if (tides != null) {
+            if (waterarray != null || parsedjson.getJsonArray("WATER-KEYFRAMES") != null) {
+                throw new IOException("Malformed Definition File - WATER-TIDES cannot be used with WATER or WATER-KEYFRAMES");
+            }
+            return new WaterFlow(controllersupplier, watershiftparams, FlowKeyframe.createTidal(controllersupplier, tides, "WATER-TIDES"));
+        }
         if (waterarray != null) {
             FlowComponentSet flowcomponents = new FlowComponentSet();
             for (JsonValue waterv : waterarray) {
@@ -40,13 +60,14 @@ public class WaterFlow extends Flow {
                     throw new IOException("Malformed Definition File - WATER array contains items other that water objects");
                 }
             }
-            return new WaterFlow(controllersupplier, null, flowcomponents);
+            return new WaterFlow(controllersupplier, watershiftparams, FlowKeyframe.create(controllersupplier, flowcomponents,
+                    parsedjson.getJsonArray("WATER-KEYFRAMES"), "WATER-KEYFRAMES"));
         }
         return null;
     }
     
-    private WaterFlow(Supplier<Controller> controllersupplier, JsonObject params, FlowComponentSet flowcomponents) throws IOException{
-        super(controllersupplier, params, flowcomponents);
+    private WaterFlow(Supplier<Controller> controllersupplier, JsonObject params, List<FlowKeyframe> keyframes) throws IOException{
+        super(controllersupplier, "WATER", params, keyframes);
     }   
     
 }
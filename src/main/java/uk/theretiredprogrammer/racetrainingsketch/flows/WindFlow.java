@@ -16,6 +16,7 @@
 package uk.theretiredprogrammer.racetrainingsketch.flows;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.function.Supplier;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
@@ -43,11 +44,12 @@ public class WindFlow extends Flow {
             }
         }
         JsonObject windshiftparams = parsedjson.getJsonObject("WIND-SHIFTS");
-        return new WindFlow(controllersupplier, windshiftparams, flowcomponents);
+        return new WindFlow(controllersupplier, windshiftparams, FlowKeyframe.create(controllersupplier, flowcomponents,
+                parsedjson.getJsonArray("WIND-KEYFRAMES"), "WIND-KEYFRAMES"));
     }
     
-    private WindFlow(Supplier<Controller> controllersupplier, JsonObject params, FlowComponentSet flowcomponents) throws IOException {
-        super(controllersupplier, params, flowcomponents);
+    private WindFlow(Supplier<Controller> controllersupplier, JsonObject params, List<FlowKeyframe> keyframes) throws IOException {
+        super(controllersupplier, "WIND", params, keyframes);
     }
     
 }
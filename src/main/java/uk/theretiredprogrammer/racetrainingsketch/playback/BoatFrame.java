@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.playback;
+
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+
+/**
+ * The pose of a boat in a frame. The track is not copied - as it only grows
+ * while the simulation runs, the frame records how much of it had been sailed.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class BoatFrame {
+
+    public final Location location;
+    public final Angle direction;
+    public final int tracksize;
+    public final int minutemarkssize;
+
+    public BoatFrame(Location location, Angle direction, int tracksize, int minutemarkssize) {
+        this.location = location;
+        this.direction = direction;
+        this.tracksize = tracksize;
+        this.minutemarkssize = minutemarkssize;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.playback;
+
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowBlend;
+import uk.theretiredprogrammer.racetrainingsketch.flows.GustField;
+
+/**
+ * The state of a flow in a frame - its swing and shift at that time, the
+ * keyframe grids it was interpolated from and its gust cells.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FlowFrame {
+
+    public final Angle swing;
+    public final Angle shift;
+    public final FlowBlend blend;
+    public final GustField gusts; // null if no gust cells
+
+    public FlowFrame(Angle swing, Angle shift, FlowBlend blend, GustField gusts) {
+        this.swing = swing;
+        this.shift = shift;
+        this.blend = blend;
+        this.gusts = gusts;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.playback;
+
+import java.util.Map;
+
+/**
+ * A frame - the displayable state of the simulation at a point in time.
+ *
+ * Frames are immutable, so can be displayed while the simulation runs ahead.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class Frame {
+
+    public final double time;
+    public final FlowFrame windframe;
+    public final FlowFrame waterframe;
+    private final Map<String, BoatFrame> boatframes;
+
+    /**
+     * Constructor
+     *
+     * @param time the simulation time
+     * @param windframe the wind flow state
+     * @param waterframe the water flow state (null if no water flow)
+     * @param boatframes the boat poses, by boat name
+     */
+    public Frame(double time, FlowFrame windframe, FlowFrame waterframe, Map<String, BoatFrame> boatframes) {
+        this.time = time;
+        this.windframe = windframe;
+        this.waterframe = waterframe;
+        this.boatframes = boatframes;
+    }
+
+    public BoatFrame getBoatFrame(String boatname) {
+        return boatframes.get(boatname);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.playback;
+
+import java.util.Optional;
+
+/**
+ * A bounded ring buffer of frames, filled by the simulation running ahead on
+ * a producer thread and read by the display as it plays back.
+ *
+ * The buffer also holds the playhead (the time of the frame being displayed).
+ * The producer waits while it is far enough ahead of the playhead; frames
+ * behind the playhead are kept (until overwritten) so that the display can
+ * seek back as well as forward within the buffer.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FrameBuffer {
+
+    private final Frame[] frames;
+    private int first = 0;
+    private int count = 0;
+    private double playhead = 0;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the maximum number of frames held
+     */
+    public FrameBuffer(int capacity) {
+        frames = new Frame[capacity];
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Add a frame, which must be later than all frames in the buffer; if the
+     * buffer is full the oldest frame is overwritten.
+     *
+     * @param frame the frame
+     */
+    public synchronized void add(Frame frame) {
+        if (count == frames.length) {
+            frames[first] = frame;
+            first = (first + 1) % frames.length;
+        } else {
+            frames[(first + count) % frames.length] = frame;
+            count++;
+        }
+        notifyAll();
+    }
+
+    public synchronized void clear() {
+        first = 0;
+        count = 0;
+        notifyAll();
+    }
+
+    /**
+     * Get the oldest frame in the buffer.
+     *
+     * @return the frame, or empty if the buffer is empty
+     */
+    public synchronized Optional<Frame> getOldest() {
+        return count == 0 ? Optional.empty() : Optional.of(frames[first]);
+    }
+
+    /**
+     * Get the newest frame in the buffer.
+     *
+     * @return the frame, or empty if the buffer is empty
+     */
+    public synchronized Optional<Frame> getNewest() {
+        return count == 0 ? Optional.empty() : Optional.of(get(count - 1));
+    }
+
+    /**
+     * Get the latest frame at or before a time.
+     *
+     * @param time the simulation time
+     * @return the frame, or empty if there is none in the buffer
+     */
+    public synchronized Optional<Frame> getFrame(double time) {
+        // binary search - the frames are in time order
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid).time <= time) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? Optional.empty() : Optional.of(get(found));
+    }
+
+    private Frame get(int index) {
+        return frames[(first + index) % frames.length];
+    }
+
+    public synchronized double getPlayhead() {
+        return playhead;
+    }
+
+    public synchronized void setPlayhead(double playhead) {
+        this.playhead = playhead;
+        notifyAll();
+    }
+
+    /**
+     * Wait until the newest frame is less than the lookahead time ahead of
+     * the playhead - ie until the producer can add another frame.
+     *
+     * @param lookahead the time the producer may run ahead (seconds)
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void awaitRoom(double lookahead) throws InterruptedException {
+        while (count > 0 && get(count - 1).time - playhead >= lookahead) {
+            wait();
+        }
+    }
+}
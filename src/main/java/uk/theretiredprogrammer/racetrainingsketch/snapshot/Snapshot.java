@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.snapshot;
+
+/**
+ * A snapshot of the mutable state of a simulation at a point in time.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class Snapshot {
+
+    public final double time;
+    public final int logsize;
+    private final byte[] state;
+
+    /**
+     * Constructor
+     *
+     * @param time the simulation time of the snapshot
+     * @param state the state (as written by the simulation objects)
+     * @param logsize the number of timer log entries at the time of the
+     * snapshot
+     */
+    public Snapshot(double time, byte[] state, int logsize) {
+        this.time = time;
+        this.state = state;
+        this.logsize = logsize;
+    }
+
+    public byte[] getState() {
+        return state;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A bounded store of snapshots, taken at regular intervals of simulation
+ * time.
+ *
+ * When the store is full, every other snapshot is discarded and the interval
+ * is doubled, so the snapshots always cover the whole of the simulation, at
+ * most two intervals apart.
+ *
+ * The store can be saved to (and loaded from) a binary checkpoint file.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class SnapshotStore {
+
+    // identifies a checkpoint file ("RTSC")
+    private static final int MAGIC = 0x52545343;
+    private static final int VERSION = 1;
+    // allowance for rounding errors when accumulating fractional time steps
+    private static final double TIMEEPSILON = 1E-6;
+
+    private final List<Snapshot> snapshots = new ArrayList<>();
+    private final int capacity;
+    private double interval;
+    private double nextsnapshottime = 0;
+
+    /**
+     * Constructor
+     *
+     * @param interval the interval between snapshots (seconds)
+     * @param capacity the maximum number of snapshots held; zero if snapshots
+     * are not to be taken
+     */
+    public SnapshotStore(double interval, int capacity) {
+        this.interval = interval;
+        this.capacity = capacity;
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * Test if a snapshot should be taken at this time.
+     *
+     * @param time the simulation time
+     * @return true if a snapshot is due
+     */
+    public boolean isDue(double time) {
+        return capacity > 0 && time > nextsnapshottime - TIMEEPSILON;
+    }
+
+    /**
+     * Get the time at which the next snapshot is due.
+     *
+     * @return the time (seconds); infinite if snapshots are not taken
+     */
+    public double getNextSnapshotTime() {
+        return capacity > 0 ? nextsnapshottime : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Add a snapshot, which must be later than all snapshots in the store.
+     *
+     * @param snapshot the snapshot
+     */
+    public void add(Snapshot snapshot) {
+        snapshots.add(snapshot);
+        if (snapshots.size() >= capacity) {
+            for (int i = snapshots.size() - 2; i > 0; i -= 2) {
+                snapshots.remove(i);
+            }
+            interval *= 2;
+        }
+        nextsnapshottime = snapshot.time + interval;
+    }
+
+    /**
+     * Get the latest snapshot taken at or before a time.
+     *
+     * @param time the simulation time
+     * @return the snapshot, or empty if none
+     */
+    public Optional<Snapshot> getLatest(double time) {
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Snapshot snapshot = snapshots.get(i);
+            if (snapshot.time < time + TIMEEPSILON) {
+                return Optional.of(snapshot);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Discard all snapshots taken after a time - used when the simulation is
+     * rewound to that time, as they will be retaken when it is rerun.
+     *
+     * @param time the simulation time
+     */
+    public void discardAfter(double time) {
+        while (!snapshots.isEmpty() && snapshots.get(snapshots.size() - 1).time > time + TIMEEPSILON) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+        nextsnapshottime = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1).time + interval;
+    }
+
+    /**
+     * Write the store as a checkpoint file.
+     *
+     * @param os the output stream
+     * @throws IOException if problems
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeDouble(interval);
+        out.writeInt(capacity);
+        out.writeInt(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            out.writeDouble(snapshot.time);
+            out.writeInt(snapshot.getState().length);
+            out.write(snapshot.getState());
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a store from a checkpoint file. The timer log is not part of the
+     * checkpoint, so the snapshots are restored with an empty log.
+     *
+     * @param is the input stream
+     * @return the store
+     * @throws IOException if problems
+     */
+    public static SnapshotStore read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Malformed Checkpoint file - not a checkpoint file");
+        }
+        if (in.readInt() != VERSION) {
+            throw new IOException("Malformed Checkpoint file - unsupported version");
+        }
+        double interval = in.readDouble();
+        int capacity = in.readInt();
+        SnapshotStore store = new SnapshotStore(interval, capacity);
+        for (int count = in.readInt(); count > 0; count--) {
+            double time = in.readDouble();
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            store.snapshots.add(new Snapshot(time, state, 0));
+        }
+        store.discardAfter(Double.MAX_VALUE);
+        return store;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The interface of simulation objects whose mutable state is saved in a
+ * snapshot, so that the simulation can be rewound to that point.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public interface Snapshotable {
+
+    /**
+     * Write the mutable state of the object.
+     *
+     * @param out the output
+     * @throws IOException if problems
+     */
+    public void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Restore the mutable state of the object, as written by writeState.
+     *
+     * @param in the input
+     * @throws IOException if problems
+     */
+    public void readState(DataInput in) throws IOException;
+}
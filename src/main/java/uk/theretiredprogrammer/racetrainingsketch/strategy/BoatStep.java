@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.strategy;
+
+import java.io.IOException;
+import java.util.List;
+import uk.theretiredprogrammer.racetrainingsketch.boats.BoatMove;
+import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
+import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLogEntry;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * The outcome of the decision phase of a time step for one boat: the move to
+ * be made and the log entries to be recorded.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class BoatStep {
+
+    private final BoatStrategyForLeg strategy;
+    private final BoatMove move;
+    private final List<TimerLogEntry> logentries;
+
+    BoatStep(BoatStrategyForLeg strategy, BoatMove move, List<TimerLogEntry> logentries) {
+        this.strategy = strategy;
+        this.move = move;
+        this.logentries = logentries;
+    }
+
+    /**
+     * Apply the step - record the log entries and move the boat.
+     *
+     * @param controller the controller
+     * @param timerlog the timer log
+     * @return the strategy for the next leg if the leg has been completed,
+     * otherwise null
+     * @throws IOException if problems
+     */
+    BoatStrategyForLeg apply(Controller controller, TimerLog timerlog) throws IOException {
+        logentries.forEach(entry -> timerlog.add(entry));
+        strategy.boat.applyMove(move);
+        return move.isLegCompleted() ? strategy.getFollowingLegStrategy(controller) : null;
+    }
+}
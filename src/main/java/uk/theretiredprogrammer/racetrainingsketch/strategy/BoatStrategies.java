@@ -15,10 +15,22 @@
  */
 package uk.theretiredprogrammer.racetrainingsketch.strategy;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+import static uk.theretiredprogrammer.racetrainingsketch.strategy.Decision.DecisionAction.SAILON;
+import static uk.theretiredprogrammer.racetrainingsketch.strategy.Decision.DecisionAction.STOP;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
@@ -28,12 +40,18 @@ import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
  */
 public class BoatStrategies {
 
-    private final Map<String, BoatStrategyForLeg> boatstrategies = new HashMap<>();
+    // fleets smaller than this are not worth the overhead of parallel decisions
+    private static final int PARALLELTHRESHOLD = 16;
+
+    // ordered by boat name, so that steps are applied in a deterministic order
+    private final Map<String, BoatStrategyForLeg> boatstrategies = new TreeMap<>();
+    private final Map<String, List<LegSplit>> legsplits = new TreeMap<>();
 
     public BoatStrategies(Controller controller) throws IOException {
         Leg firstleg = controller.course.getFirstCourseLeg();
         for (var boat : controller.boats.getBoats()) {
             boatstrategies.put(boat.name, BoatStrategyForLeg.getLegStrategy(controller, boat, firstleg));
+            legsplits.put(boat.name, new ArrayList<>());
         }
     }
 
@@ -41,12 +59,184 @@ public class BoatStrategies {
         return boatstrategies.get(boat.name);
     }
 
-    public void timerAdvance(Controller controller, int simulationtime, TimerLog timerlog) throws IOException {
-        for (var boatstrategy : boatstrategies.values()) {
-            BoatStrategyForLeg newstrategy = boatstrategy.nextTimeInterval(controller, simulationtime, timerlog);
-            if (newstrategy != null ) {
-                boatstrategies.put(boatstrategy.boat.name, newstrategy);
+    public boolean isAllFinished() {
+        return boatstrategies.values().stream()
+                .allMatch(strategy -> strategy instanceof BoatStrategyForAfterFinishLeg);
+    }
+
+    public boolean isFinished(Boat boat) {
+        return boatstrategies.get(boat.name) instanceof BoatStrategyForAfterFinishLeg;
+    }
+
+    /**
+     * Get the splits recorded as the boat completed each leg - the last split
+     * is the finish, if the boat has finished.
+     *
+     * @param boat the boat
+     * @return the leg splits, in leg order
+     */
+    public List<LegSplit> getLegSplits(Boat boat) {
+        return Collections.unmodifiableList(legsplits.get(boat.name));
+    }
+
+    /**
+     * Advance all boats by one time step.
+     *
+     * This is a two phase process. Firstly all boats make their decision and
+     * calculate their move, against the state at the start of the step (in
+     * parallel for larger fleets); then all the moves are applied, in boat
+     * name order. The outcome is therefore independent of thread count and
+     * boat ordering.
+     *
+     * @param controller the controller
+     * @param simulationtime the simulation time at the start of the step
+     * @param dt the time step
+     * @param timerlog the timer log
+     * @return true if any boat completed a leg
+     * @throws IOException if problems
+     */
+    public boolean timerAdvance(Controller controller, double simulationtime, double dt, TimerLog timerlog) throws IOException {
+        boolean legcompleted = false;
+        for (BoatStep step : decide(controller, dt)) {
+            BoatStrategyForLeg newstrategy = step.apply(controller, timerlog);
+            if (newstrategy != null) {
+                Boat boat = newstrategy.boat;
+                boatstrategies.put(boat.name, newstrategy);
+                legsplits.get(boat.name).add(new LegSplit(simulationtime + dt, boat.getDistanceSailed()));
+                legcompleted = true;
             }
         }
+        return legcompleted;
+    }
+
+    /**
+     * Test if all boats are sailing on (or stopped) - ie not turning.
+     *
+     * @return true if all sailing on
+     */
+    public boolean isAllSailingOn() {
+        return boatstrategies.values().stream()
+                .allMatch(strategy -> strategy.decision.getAction() == SAILON || strategy.decision.getAction() == STOP);
+    }
+
+    /**
+     * Get the time for which all boats can sail on in their current direction
+     * without any decision changing, in a uniform and steady flow.
+     *
+     * @param windflow the (uniform) wind flow
+     * @param waterflow the (uniform) water flow
+     * @return the time (seconds)
+     * @throws IOException if problems
+     */
+    public double getTimeToNextDecision(FlowVector windflow, FlowVector waterflow) throws IOException {
+        double time = Double.MAX_VALUE;
+        Angle winddirection = windflow.getAngle();
+        for (BoatStrategyForLeg strategy : boatstrategies.values()) {
+            time = Math.min(time, strategy.getTimeToNextDecision(strategy.boat.getMaxSpeedOverGround(windflow, waterflow),
+                    winddirection));
+        }
+        return time;
+    }
+
+    /**
+     * Advance all boats by one time step, sailing on in their current
+     * direction without making any decisions, in a uniform and steady flow.
+     *
+     * @param dt the time step
+     * @param windflow the (uniform) wind flow
+     * @param waterflow the (uniform) water flow
+     */
+    public void sailOn(double dt, FlowVector windflow, FlowVector waterflow) {
+        for (BoatStrategyForLeg strategy : boatstrategies.values()) {
+            if (strategy.decision.getAction() == SAILON) {
+                strategy.boat.applyMove(strategy.boat.sailOn(dt, windflow, waterflow));
+            }
+        }
+    }
+
+    /**
+     * Get the longest time step which all boats can take without losing
+     * accuracy.
+     *
+     * @param controller the controller
+     * @param timestep the short time step (seconds)
+     * @param maxtimestep the maximum time step (seconds)
+     * @return the time step (seconds)
+     * @throws IOException if problems
+     */
+    public double getMaxTimeStep(Controller controller, double timestep, double maxtimestep) throws IOException {
+        double dt = maxtimestep;
+        for (BoatStrategyForLeg strategy : boatstrategies.values()) {
+            dt = Math.min(dt, strategy.getMaxTimeStep(controller, timestep, maxtimestep));
+        }
+        return dt;
+    }
+
+    /**
+     * Write the state of all boats and their strategies, in boat name order.
+     *
+     * @param controller the controller
+     * @param out the output
+     * @throws IOException if problems
+     */
+    public void writeState(Controller controller, DataOutput out) throws IOException {
+        Leg firstleg = controller.course.getFirstCourseLeg();
+        out.writeInt(boatstrategies.size());
+        for (BoatStrategyForLeg strategy : boatstrategies.values()) {
+            Boat boat = strategy.boat;
+            out.writeUTF(boat.name);
+            boat.writeState(out);
+            strategy.writeState(firstleg, out);
+            List<LegSplit> splits = legsplits.get(boat.name);
+            out.writeInt(splits.size());
+            for (LegSplit split : splits) {
+                out.writeDouble(split.time);
+                out.writeDouble(split.distancesailed);
+            }
+        }
+    }
+
+    /**
+     * Restore the state of all boats and their strategies, as written by
+     * writeState.
+     *
+     * @param controller the controller
+     * @param in the input
+     * @throws IOException if problems
+     */
+    public void readState(Controller controller, DataInput in) throws IOException {
+        if (in.readInt() != boatstrategies.size()) {
+            throw new IOException("Malformed Snapshot - the boats do not match the definition");
+        }
+        for (String name : new ArrayList<>(boatstrategies.keySet())) {
+            if (!in.readUTF().equals(name)) {
+                throw new IOException("Malformed Snapshot - the boats do not match the definition");
+            }
+            Boat boat = boatstrategies.get(name).boat;
+            boat.readState(in);
+            boatstrategies.put(name, BoatStrategyForLeg.readState(controller, boat, in));
+            List<LegSplit> splits = legsplits.get(name);
+            splits.clear();
+            for (int count = in.readInt(); count > 0; count--) {
+                splits.add(new LegSplit(in.readDouble(), in.readDouble()));
+            }
+        }
+    }
+
+    private List<BoatStep> decide(Controller controller, double dt) throws IOException {
+        Stream<BoatStrategyForLeg> strategies = boatstrategies.size() < PARALLELTHRESHOLD
+                ? boatstrategies.values().stream()
+                : boatstrategies.values().parallelStream();
+        try {
+            return strategies.map(strategy -> {
+                try {
+                    return strategy.decide(controller, dt);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 }
@@ -15,7 +15,10 @@
  */
 package uk.theretiredprogrammer.racetrainingsketch.strategy;
 
+import java.util.Collections;
+import java.util.List;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
@@ -31,7 +34,7 @@ class BoatStrategyForAfterFinishLeg extends BoatStrategyForLeg {
     @Override
     String nextBoatStrategyTimeInterval(Controller controller) {
         double fromfinishmark = boat.location.to(leg.getEndLocation());
-        if (fromfinishmark > boat.metrics.getLength() * 5) {
+        if (fromfinishmark > getStoppingDistance()) {
             decision.setSTOP();
             return "Stopping at end of course";
         } else {
@@ -40,4 +43,23 @@ class BoatStrategyForAfterFinishLeg extends BoatStrategyForLeg {
         }
     }
 
+    private double getStoppingDistance() {
+        return boat.metrics.getLength() * 5;
+    }
+
+    @Override
+    double getDistanceToMarkZone() {
+        return Math.max(0, getStoppingDistance() - boat.location.to(leg.getEndLocation()));
+    }
+
+    @Override
+    List<Location> getDecisionLocations() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    LegType getStrategyLegType() {
+        return LegType.NONE;
+    }
+
 }
@@ -15,19 +15,27 @@
  */
 package uk.theretiredprogrammer.racetrainingsketch.strategy;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
 import uk.theretiredprogrammer.racetrainingsketch.boats.BoatMetrics;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE90;
+import uk.theretiredprogrammer.racetrainingsketch.core.Channel;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Channel.CHANNELOFF;
 import uk.theretiredprogrammer.racetrainingsketch.core.DistancePolar;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
 import static uk.theretiredprogrammer.racetrainingsketch.strategy.Decision.DecisionAction.SAILON;
+import static uk.theretiredprogrammer.racetrainingsketch.strategy.Decision.DecisionAction.STOP;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.BoatLogEntry;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.DecisionLogEntry;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.ReasonLogEntry;
-import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
+import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLogEntry;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
@@ -41,7 +49,10 @@ public abstract class BoatStrategyForLeg {
     }
 
     static BoatStrategyForLeg getLegStrategy(Controller controller, Boat boat, Leg leg) throws IOException {
-        LegType legtype = getLegType(controller, boat, leg);
+        return createLegStrategy(controller, boat, leg, getLegType(controller, boat, leg));
+    }
+
+    private static BoatStrategyForLeg createLegStrategy(Controller controller, Boat boat, Leg leg, LegType legtype) throws IOException {
         switch (legtype) {
             case WINDWARD:
                 return new BoatStrategyForWindwardLeg(controller, boat, leg);
@@ -86,13 +97,24 @@ public abstract class BoatStrategyForLeg {
         return tomarkangle.absAngleDiff(refangle);
     }
 
+    // the fraction of the distance to the mark which can be sailed in one step
+    private static final double REFINEFRACTION = 0.05;
+    // the fraction of the (minimum) time to the layline which can be sailed in one step
+    private static final double LAYLINEFRACTION = 0.5;
+    // slowest boat speed (m/s) assumed when choosing the time step
+    private static final double MINREFINESPEED = 0.5;
+
     public final Boat boat;
     public final Leg leg;
     public final Decision decision;
 
     private final double length;
-    private final Angle portoffsetangle;
-    private final Angle starboardoffsetangle;
+    // taken from the wind at the mark when the strategy is created, so they
+    // are part of the snapshot state rather than being recalculated
+    private Angle portoffsetangle;
+    private Angle starboardoffsetangle;
+    // the wind is looked up into this, to avoid allocating the flow
+    private final FlowVector windvector = new FlowVector();
 
     public BoatStrategyForLeg(Boat boat, Leg leg,
             Angle portroundingportoffsetangle, Angle portroundingstarboardoffsetangle,
@@ -151,22 +173,243 @@ public abstract class BoatStrategyForLeg {
         return here.angleto(getSailToLocation(onPort));
     }
 
+    /**
+     * Get the direction of the wind at the boat.
+     *
+     * @param controller the controller
+     * @return the direction the wind comes from
+     */
+    Angle getWindDirection(Controller controller) {
+        return new Angle(controller.windflow.getFlowDegrees(boat.location.getX(), boat.location.getY(), windvector));
+    }
+
     abstract String nextBoatStrategyTimeInterval(Controller controller) throws IOException;
 
-    BoatStrategyForLeg nextTimeInterval(Controller controller, int simulationtime, TimerLog timerlog) throws IOException {
-        String boatname = boat.name;
+    /**
+     * The decision phase of a time step - make the decision and calculate the
+     * resulting move, without moving the boat.
+     *
+     * Only this boat's strategy and decision are changed, so all boats can be
+     * processed concurrently.
+     *
+     * @param controller the controller
+     * @param dt the time step (seconds)
+     * @return the step to be applied
+     * @throws IOException if problems
+     */
+    BoatStep decide(Controller controller, double dt) throws IOException {
+        List<TimerLogEntry> logentries = Collections.emptyList();
         if (decision.getAction() == SAILON) {
+            String boatname = boat.name;
+            BoatLogEntry boatentry = new BoatLogEntry(boat);
             String reason = nextBoatStrategyTimeInterval(controller);
-            timerlog.add(new BoatLogEntry(boat));
-            timerlog.add(new DecisionLogEntry(boatname, decision));
-            timerlog.add(new ReasonLogEntry(boatname, reason));
+            logentries = List.of(boatentry,
+                    new DecisionLogEntry(boatname, decision),
+                    new ReasonLogEntry(boatname, reason));
         }
-        if (boat.moveUsingDecision()) {
-            Leg nextleg = leg.getFollowingLeg();
-            return nextleg == null
-                    ? new BoatStrategyForAfterFinishLeg(boat, leg)
-                    : BoatStrategyForLeg.getLegStrategy(controller, boat, nextleg);
+        return new BoatStep(this, boat.nextMove(dt), logentries);
+    }
+
+    /**
+     * Get the longest time step which can be taken without losing accuracy -
+     * any step if the boat has stopped, a short step if the boat is turning,
+     * otherwise one in which the boat will sail only a small fraction of the
+     * distance to the mark, and only part of the way to the layline.
+     *
+     * @param controller the controller
+     * @param timestep the short time step (seconds)
+     * @param maxtimestep the maximum time step (seconds)
+     * @return the time step (seconds)
+     * @throws IOException if problems
+     */
+    double getMaxTimeStep(Controller controller, double timestep, double maxtimestep) throws IOException {
+        if (decision.getAction() == STOP) {
+            return maxtimestep;
         }
-        return null;
+        if (decision.getAction() != SAILON) {
+            return timestep;
+        }
+        double speed = Math.max(boat.getBoatSpeed(), MINREFINESPEED);
+        double distance = getDistanceToMark(boat.location);
+        double dt = Math.min(maxtimestep, distance * REFINEFRACTION / speed);
+        Optional<Angle> laylinemargin = getLaylineMargin(controller);
+        if (laylinemargin.isPresent()) {
+            // the bearing to the mark can change by at most speed/distance radians per second
+            dt = Math.min(dt, laylinemargin.get().getRadians() * distance * LAYLINEFRACTION / speed);
+        }
+        return Math.max(timestep, dt);
+    }
+
+    /**
+     * Get the angle between the course to the mark (on the other tack or
+     * gybe) and the layline - ie how far the boat is from the point where it
+     * will tack or gybe onto the layline.
+     *
+     * @param controller the controller
+     * @return the angle, or empty if the leg has no laylines
+     * @throws IOException if problems
+     */
+    Optional<Angle> getLaylineMargin(Controller controller) throws IOException {
+        return Optional.empty();
+    }
+
+    /**
+     * Get the time for which the boat can sail on in its current direction
+     * without its decision changing.
+     *
+     * While sailing on, in a uniform and steady flow, the decisions only
+     * change when the boat reaches the mark zone or the edge of its channel,
+     * or when its bearing (rounded to a whole degree) to the mark or to one of
+     * the sail to locations crosses one of the angles which the decisions
+     * compare it with; so this is the shortest time in which any of these
+     * could happen, assuming the boat is sailing at its maximum speed directly
+     * towards it.
+     *
+     * @param maxspeed the maximum speed over the ground (metres/second)
+     * @param winddirection the (uniform) wind direction
+     * @return the time (seconds), zero if the boat is not sailing on
+     * @throws IOException if problems
+     */
+    double getTimeToNextDecision(double maxspeed, Angle winddirection) throws IOException {
+        if (decision.getAction() == STOP || maxspeed <= 0) {
+            return Double.MAX_VALUE;
+        }
+        if (decision.getAction() != SAILON) {
+            return 0;
+        }
+        double distance = Math.min(getDistanceToMarkZone(), getChannel().getDistanceToEdge(boat.location));
+        double time = distance / maxspeed;
+        List<Angle> decisionangles = List.of(boat.direction, boat.direction.inverse(),
+                boat.direction.add(ANGLE90), boat.direction.sub(ANGLE90),
+                boat.getPortCloseHauledCourse(winddirection), boat.getStarboardCloseHauledCourse(winddirection),
+                boat.getPortReachingCourse(winddirection), boat.getStarboardReachingCourse(winddirection));
+        for (Location decisionlocation : getDecisionLocations()) {
+            time = Math.min(time, getTimeToBearingChange(decisionlocation, decisionangles, maxspeed));
+        }
+        return time;
+    }
+
+    private double getTimeToBearingChange(Location decisionlocation, List<Angle> decisionangles, double maxspeed) {
+        double distance = boat.location.to(decisionlocation);
+        double bearing = Math.toDegrees(Math.atan2(decisionlocation.getX() - boat.location.getX(),
+                decisionlocation.getY() - boat.location.getY()));
+        double margin = Double.MAX_VALUE;
+        for (Angle decisionangle : decisionangles) {
+            margin = Math.min(margin, getBearingMargin(bearing, decisionangle.getDegrees()));
+        }
+        // angles are normalised, so crossing the reciprocal is a change too
+        margin = Math.min(margin, getBearingMargin(bearing, 180));
+        margin = Math.toRadians(margin);
+        // the bearing changes by at most speed/(remaining distance) radians per second
+        return margin * distance / (maxspeed * (1 + margin));
+    }
+
+    // the change in (exact) bearing before the rounded bearing could compare differently with this angle
+    private static double getBearingMargin(double bearing, double angle) {
+        double diff = Math.abs(new Angle(bearing - angle).getDegrees());
+        if (Math.rint(angle) != angle) {
+            return Math.max(0, diff - 1);
+        }
+        return diff <= 0.5 ? 0.5 - diff : diff - 0.5;
+    }
+
+    /**
+     * Get the distance from the boat to the mark zone (where the rounding
+     * decisions take over).
+     *
+     * @return the distance, zero if in the zone
+     * @throws IOException if problems
+     */
+    double getDistanceToMarkZone() throws IOException {
+        return 0;
+    }
+
+    Channel getChannel() {
+        return CHANNELOFF;
+    }
+
+    List<Location> getDecisionLocations() {
+        return List.of(getMarkLocation(), getSailToLocation(true), getSailToLocation(false));
+    }
+
+    abstract LegType getStrategyLegType();
+
+    boolean isUsingRoundingDecisions() {
+        return false;
+    }
+
+    void setUsingRoundingDecisions(boolean useroundingdecisions) {
+    }
+
+    /**
+     * Write the state of the strategy - its type, its leg (as the leg's
+     * position in the course), the decision, whether the rounding decisions
+     * are in use and the offset angles used to aim off the mark.
+     *
+     * @param firstleg the first leg of the course
+     * @param out the output
+     * @throws IOException if problems
+     */
+    void writeState(Leg firstleg, DataOutput out) throws IOException {
+        out.writeInt(getStrategyLegType().ordinal());
+        int legnumber = 0;
+        for (Leg l = firstleg; l != leg; l = l.getFollowingLeg()) {
+            legnumber++;
+        }
+        out.writeInt(legnumber);
+        decision.writeState(out);
+        out.writeBoolean(isUsingRoundingDecisions());
+        writeAngle(portoffsetangle, out);
+        writeAngle(starboardoffsetangle, out);
+    }
+
+    private static void writeAngle(Angle angle, DataOutput out) throws IOException {
+        out.writeBoolean(angle != null);
+        if (angle != null) {
+            out.writeDouble(angle.getDegrees());
+        }
+    }
+
+    private static Angle readAngle(DataInput in) throws IOException {
+        return in.readBoolean() ? new Angle(in.readDouble()) : null;
+    }
+
+    /**
+     * Create a strategy from its state, as written by writeState.
+     *
+     * @param controller the controller
+     * @param boat the boat
+     * @param in the input
+     * @return the strategy
+     * @throws IOException if problems
+     */
+    static BoatStrategyForLeg readState(Controller controller, Boat boat, DataInput in) throws IOException {
+        int ordinal = in.readInt();
+        if (ordinal < 0 || ordinal >= LegType.values().length) {
+            throw new IOException("Malformed Snapshot - unknown leg type");
+        }
+        LegType legtype = LegType.values()[ordinal];
+        Leg leg = controller.course.getFirstCourseLeg();
+        for (int legnumber = in.readInt(); legnumber > 0 && leg != null; legnumber--) {
+            leg = leg.getFollowingLeg();
+        }
+        if (leg == null) {
+            throw new IOException("Malformed Snapshot - leg is not part of the course");
+        }
+        BoatStrategyForLeg strategy = legtype == LegType.NONE
+                ? new BoatStrategyForAfterFinishLeg(boat, leg)
+                : createLegStrategy(controller, boat, leg, legtype);
+        strategy.decision.readState(in);
+        strategy.setUsingRoundingDecisions(in.readBoolean());
+        strategy.portoffsetangle = readAngle(in);
+        strategy.starboardoffsetangle = readAngle(in);
+        return strategy;
+    }
+
+    BoatStrategyForLeg getFollowingLegStrategy(Controller controller) throws IOException {
+        Leg nextleg = leg.getFollowingLeg();
+        return nextleg == null
+                ? new BoatStrategyForAfterFinishLeg(boat, leg)
+                : BoatStrategyForLeg.getLegStrategy(controller, boat, nextleg);
     }
 }
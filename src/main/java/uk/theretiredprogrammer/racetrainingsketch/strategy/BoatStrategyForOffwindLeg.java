@@ -79,7 +79,35 @@ public class BoatStrategyForOffwindLeg extends BoatStrategyForLeg {
 
     boolean isNear2Mark(Boat boat, Angle markMeanwinddirection) {
         Optional<Double> refdistance = getRefDistance(boat.location, leg.getEndLocation(), markMeanwinddirection.sub(ANGLE180));
-        return refdistance.isPresent() ? refdistance.get() <= boat.metrics.getWidth() * 20 : true;
+        return refdistance.isPresent() ? refdistance.get() <= getMarkZone() : true;
     }
 
+    private double getMarkZone() {
+        return boat.metrics.getWidth() * 20;
+    }
+
+    @Override
+    double getDistanceToMarkZone() throws IOException {
+        if (useroundingdecisions) {
+            return 0;
+        }
+        Angle markMeanwinddirection = leg.getMarkMeanwinddirection();
+        Optional<Double> refdistance = getRefDistance(boat.location, leg.getEndLocation(), markMeanwinddirection.sub(ANGLE180));
+        return refdistance.isPresent() ? Math.max(0, refdistance.get() - getMarkZone()) : 0;
+    }
+
+    @Override
+    LegType getStrategyLegType() {
+        return LegType.OFFWIND;
+    }
+
+    @Override
+    boolean isUsingRoundingDecisions() {
+        return useroundingdecisions;
+    }
+
+    @Override
+    void setUsingRoundingDecisions(boolean useroundingdecisions) {
+        this.useroundingdecisions = useroundingdecisions;
+    }
 }
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.util.Optional;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Channel;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Channel.CHANNELOFF;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE90;
 import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
@@ -64,7 +66,7 @@ public class BoatStrategyForWindwardLeg extends BoatStrategyForLeg {
     @Override
     String nextBoatStrategyTimeInterval(Controller controller) throws IOException {
         Angle markMeanwinddirection = leg.getMarkMeanwinddirection();
-        Angle winddirection = controller.windflow.getFlow(boat.location).getAngle();
+        Angle winddirection = getWindDirection(controller);
         if (useroundingdecisions) {
             return roundingdecisions.nextTimeInterval(controller, this);
         }
@@ -75,8 +77,54 @@ public class BoatStrategyForWindwardLeg extends BoatStrategyForLeg {
         return (boat.isPort(winddirection) ? portdecisions : starboarddecisions).nextTimeInterval(controller, this);
     }
 
+    @Override
+    Optional<Angle> getLaylineMargin(Controller controller) throws IOException {
+        if (useroundingdecisions) {
+            return Optional.empty();
+        }
+        Angle winddirection = getWindDirection(controller);
+        boolean onPort = boat.isPort(winddirection);
+        Angle layline = onPort ? boat.getStarboardCloseHauledCourse(winddirection)
+                : boat.getPortCloseHauledCourse(winddirection);
+        return Optional.of(getAngletoSail(boat.location, !onPort).absAngleDiff(layline));
+    }
+
     boolean isNear2Mark(Boat boat, Angle markMeanwinddirection) {
         Optional<Double> refdistance = getRefDistance(boat.location, leg.getEndLocation(), markMeanwinddirection);
-        return refdistance.isPresent() ? refdistance.get() <= boat.metrics.getLength() * 5 : true;
+        return refdistance.isPresent() ? refdistance.get() <= getMarkZone() : true;
+    }
+
+    private double getMarkZone() {
+        return boat.metrics.getLength() * 5;
+    }
+
+    @Override
+    double getDistanceToMarkZone() throws IOException {
+        if (useroundingdecisions) {
+            return 0;
+        }
+        Angle markMeanwinddirection = leg.getMarkMeanwinddirection();
+        Optional<Double> refdistance = getRefDistance(boat.location, leg.getEndLocation(), markMeanwinddirection);
+        return refdistance.isPresent() ? Math.max(0, refdistance.get() - getMarkZone()) : 0;
+    }
+
+    @Override
+    Channel getChannel() {
+        return boat.upwindchannel == null ? CHANNELOFF : boat.upwindchannel;
+    }
+
+    @Override
+    LegType getStrategyLegType() {
+        return LegType.WINDWARD;
+    }
+
+    @Override
+    boolean isUsingRoundingDecisions() {
+        return useroundingdecisions;
+    }
+
+    @Override
+    void setUsingRoundingDecisions(boolean useroundingdecisions) {
+        this.useroundingdecisions = useroundingdecisions;
     }
 }
@@ -15,14 +15,18 @@
  */
 package uk.theretiredprogrammer.racetrainingsketch.strategy;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.Snapshotable;
 
 /**
  *
  * @author Richard Linsdale (richard at theretiredprogrammer.uk)
  */
-public class Decision {
+public class Decision implements Snapshotable {
 
     public static final boolean PORT = true;
     public static final boolean STARBOARD = false;
@@ -78,4 +82,25 @@ public class Decision {
     public boolean isPort() {
         return turndirection;
     }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(action.ordinal());
+        out.writeBoolean(angle != null);
+        if (angle != null) {
+            out.writeDouble(angle.getDegrees());
+        }
+        out.writeBoolean(turndirection);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int ordinal = in.readInt();
+        if (ordinal < 0 || ordinal >= DecisionAction.values().length) {
+            throw new IOException("Malformed Snapshot - unknown decision action");
+        }
+        action = DecisionAction.values()[ordinal];
+        angle = in.readBoolean() ? new Angle(in.readDouble()) : null;
+        turndirection = in.readBoolean();
+    }
 }
@@ -29,7 +29,7 @@ class GybingDownwindPortSailingDecisions extends SailingDecisions {
 
     @Override
     String nextTimeInterval(Controller controller, BoatStrategyForLeg legstrategy) throws IOException {
-        Angle winddirection = controller.windflow.getFlow(legstrategy.boat.location).getAngle();
+        Angle winddirection = legstrategy.getWindDirection(controller);
         Angle boatangletowind = legstrategy.boat.direction.absAngleDiff(winddirection);
         Angle meanwinddirection = controller.windflow.getMeanFlowAngle();
         if (gybeifonstarboardlayline(legstrategy, winddirection)) {
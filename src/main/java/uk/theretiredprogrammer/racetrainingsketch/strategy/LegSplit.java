@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.strategy;
+
+/**
+ * The record of a boat completing a leg.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class LegSplit {
+
+    public final double time;
+    public final double distancesailed;
+
+    LegSplit(double time, double distancesailed) {
+        this.time = time;
+        this.distancesailed = distancesailed;
+    }
+}
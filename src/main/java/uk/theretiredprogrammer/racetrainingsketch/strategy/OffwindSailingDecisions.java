@@ -28,7 +28,7 @@ class OffwindSailingDecisions extends SailingDecisions {
 
     @Override
     String nextTimeInterval(Controller controller, BoatStrategyForLeg legstrategy) throws IOException {
-        Angle winddirection = controller.windflow.getFlow(legstrategy.boat.location).getAngle();
+        Angle winddirection = legstrategy.getWindDirection(controller);
         boolean onPort = legstrategy.boat.isPort(winddirection);
         Angle nextDirection = legstrategy.getAngletoSail(legstrategy.boat.location, onPort);
         if (nextDirection.neq(legstrategy.boat.direction)) {
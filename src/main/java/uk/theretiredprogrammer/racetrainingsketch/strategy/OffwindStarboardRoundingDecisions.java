@@ -35,7 +35,7 @@ class OffwindStarboardRoundingDecisions extends RoundingDecisions {
 
     @Override
     final String nextTimeInterval(Controller controller, BoatStrategyForLeg legstrategy) throws IOException {
-        Angle winddirection = controller.windflow.getFlow(legstrategy.boat.location).getAngle();
+        Angle winddirection = legstrategy.getWindDirection(controller);
         if (atStarboardRoundingTurnPoint(legstrategy)) {
             return executeStarboardRounding(getDirectionAfterTurn, winddirection, legstrategy);
         }
@@ -29,7 +29,7 @@ class WindwardPortSailingDecisions extends SailingDecisions {
 
     @Override
     String nextTimeInterval(Controller controller, BoatStrategyForLeg legstrategy) throws IOException {
-        Angle winddirection = controller.windflow.getFlow(legstrategy.boat.location).getAngle();
+        Angle winddirection = legstrategy.getWindDirection(controller);
         Angle meanwinddirection = controller.windflow.getMeanFlowAngle();
         Angle boatangletowind = legstrategy.boat.direction.absAngleDiff(winddirection);
         if (tackifonstarboardlayline(legstrategy, winddirection)) {
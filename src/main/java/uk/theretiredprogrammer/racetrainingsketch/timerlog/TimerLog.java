@@ -29,6 +29,21 @@ public class TimerLog {
 
     private String mmsstime;
     private final List<TimerLogEntry> log = new ArrayList<>();
+    private final boolean recording;
+
+    public TimerLog() {
+        this(true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param recording false if entries are to be discarded (eg for headless
+     * runs where the log will never be displayed)
+     */
+    public TimerLog(boolean recording) {
+        this.recording = recording;
+    }
 
     public void setTime(String mmsstime) {
         this.mmsstime = mmsstime;
@@ -38,7 +53,26 @@ public class TimerLog {
         log.clear();
     }
 
+    public int size() {
+        return log.size();
+    }
+
+    /**
+     * Discard the later entries in the log - used when the simulation is
+     * rewound.
+     *
+     * @param size the number of entries to keep
+     */
+    public void truncate(int size) {
+        if (log.size() > size) {
+            log.subList(size, log.size()).clear();
+        }
+    }
+
     public void add(TimerLogEntry entry) {
+        if (!recording) {
+            return;
+        }
         entry.setTime(mmsstime);
         log.add(entry);
     }
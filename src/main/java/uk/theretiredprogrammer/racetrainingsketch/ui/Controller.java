@@ -17,20 +17,46 @@ package uk.theretiredprogrammer.racetrainingsketch.ui;
 
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import javax.json.Json;
 import javax.json.JsonException;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
 import org.openide.awt.StatusDisplayer;
+import org.openide.filesystems.FileUtil;
+import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
 import uk.theretiredprogrammer.racetrainingsketch.boats.Boats;
+import uk.theretiredprogrammer.racetrainingsketch.boats.WindShadow;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.LongParser;
+import uk.theretiredprogrammer.racetrainingsketch.core.RandomSource;
 import uk.theretiredprogrammer.racetrainingsketch.course.Course;
+import uk.theretiredprogrammer.racetrainingsketch.ensemble.EnsembleResults;
+import uk.theretiredprogrammer.racetrainingsketch.ensemble.EnsembleRunner;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
 import uk.theretiredprogrammer.racetrainingsketch.flows.WaterFlow;
 import uk.theretiredprogrammer.racetrainingsketch.flows.WindFlow;
+import uk.theretiredprogrammer.racetrainingsketch.playback.BoatFrame;
+import uk.theretiredprogrammer.racetrainingsketch.playback.Frame;
+import uk.theretiredprogrammer.racetrainingsketch.playback.FrameBuffer;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.Snapshot;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.SnapshotStore;
 import uk.theretiredprogrammer.racetrainingsketch.strategy.BoatStrategies;
 import uk.theretiredprogrammer.racetrainingsketch.timerlog.TimerLog;
 
@@ -44,33 +70,163 @@ public class Controller {
     public DisplayParameters displayparameters;
     public WindFlow windflow;
     public WaterFlow waterflow;
+    public WindShadow windshadow; // null if boats cast no wind shadow
     public Course course;
     public Boats boats;
     public BoatStrategies boatstrategies;
     //
-    private int simulationtime;
-    private boolean isRunning;
-    private Timer timer;
-    private TimeStepRunner runner;
+    // allowance for rounding errors when accumulating fractional time steps
+    private static final double TIMEEPSILON = 1E-6;
+    //
+    private double simulationtime;
+    private final AtomicBoolean isFastForwarding = new AtomicBoolean(false);
+    private volatile double speedup;
+    private final TimeStepScheduler scheduler = new TimeStepScheduler((ticks) -> playbackTicks(ticks));
     private final Consumer<String> displayupdaterequest;
+    private RandomSource random;
+    private SnapshotStore snapshots;
+    // the simulation runs ahead (on the producer thread) into the frame
+    // buffer, and the display plays back the frames
+    private FrameBuffer frames;
+    private volatile Frame currentframe;
+    private Thread producer;
+    private volatile boolean producing;
+    private final TimerLog timerlog;
+    private JsonObject parsedjson;
+    private long seed;
+    private boolean snapshotting;
+    private Path basedirectory; // null if not known
+    // flow lookups for the time warp are made into these
+    private final FlowVector warpwind = new FlowVector();
+    private final FlowVector warpwater = new FlowVector();
 
     private void createController(InputStream is) throws JsonException, IOException {
-        simulationtime = 0;
-        JsonObject parsedjson;
         try ( JsonReader rdr = Json.createReader(is)) {
-            parsedjson = rdr.readObject();
+            JsonObject parsedjson = rdr.readObject();
+            createController(parsedjson, getSeed(parsedjson), true);
         }
+    }
+
+    private void createController(JsonObject parsedjson, long seed, boolean snapshotting) throws IOException {
+        this.seed = seed;
+        this.snapshotting = snapshotting;
+        simulationtime = 0;
+        random = new RandomSource(seed);
         sailingarea = new SailingArea(parsedjson);
         displayparameters = new DisplayParameters(parsedjson);
+        speedup = displayparameters.speedup;
         waterflow = WaterFlow.create(() -> this, parsedjson);
         windflow = WindFlow.create(() -> this, parsedjson);
         course = new Course(() -> this, parsedjson);
         boats = new Boats(() -> this, parsedjson);
+        windshadow = WindShadow.create(parsedjson);
+        boatstrategies = new BoatStrategies(this);
+        startSimulation();
+        this.parsedjson = parsedjson;
+    }
+
+    private void startSimulation() throws IOException {
+        snapshots = new SnapshotStore(displayparameters.snapshotinterval, snapshotting ? displayparameters.snapshots : 0);
+        takeSnapshotIfDue();
+        frames = new FrameBuffer(displayparameters.framebuffer);
+        currentframe = captureFrame();
+    }
+
+    /**
+     * Reload the definition file after it has been changed, and restart the
+     * simulation.
+     *
+     * @param dataobj the definition file data object
+     */
+    public void reload(DefFileDataObject dataobj) {
+        stop();
+        stopProducer();
+        try ( JsonReader rdr = Json.createReader(dataobj.getPrimaryFile().getInputStream())) {
+            JsonObject newjson = rdr.readObject();
+            synchronized (this) {
+                reload(newjson);
+            }
+            showSimulationState();
+        } catch (JsonException | IOException ex) {
+            reportfailure(ex);
+        }
+    }
+
+    /**
+     * Reload a changed definition, and restart the simulation. The definition
+     * is compared with the previous definition, section by section, and only
+     * the parts of the simulation affected by the changes are rebuilt; the
+     * rest are restored to their start state.
+     *
+     * The changed parts are all built before any is used, so if the changed
+     * definition is not valid the simulation is left as it was. The
+     * simulation is completely rebuilt if the sailing area, the seed or the
+     * presence of a water flow has changed.
+     *
+     * @param newjson the parsed definition file
+     * @throws IOException if problems with the definition
+     */
+    synchronized void reload(JsonObject newjson) throws IOException {
+        JsonObject oldjson = parsedjson;
+        Optional<Snapshot> start = snapshots == null ? Optional.empty() : snapshots.getLatest(0);
+        long newseed = LongParser.parse(newjson.getJsonObject("WIND-SHIFTS"), "seed").orElse(seed);
+        if (oldjson == null || !start.isPresent() || newseed != seed || isChanged(oldjson, newjson, "SAILING AREA")
+                || WaterFlow.isDefined(newjson) != (waterflow != null)) {
+            parsedjson = null; // if the rebuild fails, the next reload will rebuild everything
+            createController(newjson, newseed, snapshotting);
+            return;
+        }
+        boolean displaychanged = isChanged(oldjson, newjson, "DISPLAY");
+        DisplayParameters newdisplayparameters = displaychanged ? new DisplayParameters(newjson) : displayparameters;
+        WaterFlow newwaterflow = waterflow;
+        if (waterflow != null && (isChanged(oldjson, newjson, "WATER") || isChanged(oldjson, newjson, "WATER-SHIFTS")
+                || isChanged(oldjson, newjson, "WATER-KEYFRAMES") || isChanged(oldjson, newjson, "WATER-TIDES"))) {
+            newwaterflow = WaterFlow.create(() -> this, newjson);
+        }
+        JsonObject oldshifts = oldjson.getJsonObject("WIND-SHIFTS");
+        JsonObject newshifts = newjson.getJsonObject("WIND-SHIFTS");
+        boolean shiftschanged = !Objects.equals(oldshifts, newshifts);
+        WindFlow newwindflow = windflow;
+        // change() only overrides the parameters which are defined
+        if (isChanged(oldjson, newjson, "WIND") || isChanged(oldjson, newjson, "WIND-KEYFRAMES") || (shiftschanged
+                && (oldshifts == null || newshifts == null || !newshifts.keySet().containsAll(oldshifts.keySet())))) {
+            newwindflow = WindFlow.create(() -> this, newjson);
+        } else if (shiftschanged) {
+            windflow.checkChange(newshifts);
+        }
+        Course newcourse = isChanged(oldjson, newjson, "MARKS") || isChanged(oldjson, newjson, "COURSE")
+                ? new Course(() -> this, newjson) : course;
+        Boats newboats = isChanged(oldjson, newjson, "BOATS") ? new Boats(boats, () -> this, newjson) : boats;
+        WindShadow newwindshadow = isChanged(oldjson, newjson, "WIND-SHADOW") ? WindShadow.create(newjson) : windshadow;
+        // and then swapped in together, at the start of the simulation
+        restore(start.get());
+        timerlog.clear();
+        if (newwindflow == windflow && shiftschanged) {
+            windflow.change(newshifts);
+        }
+        displayparameters = newdisplayparameters;
+        if (displaychanged) {
+            speedup = displayparameters.speedup;
+        }
+        waterflow = newwaterflow;
+        windflow = newwindflow;
+        course = newcourse;
+        boats = newboats;
+        windshadow = newwindshadow;
         boatstrategies = new BoatStrategies(this);
+        startSimulation();
+        parsedjson = newjson;
+    }
+
+    private boolean isChanged(JsonObject oldjson, JsonObject newjson, String section) {
+        return !Objects.equals(oldjson.get(section), newjson.get(section));
     }
 
     public Controller(DefFileDataObject dataobj, Consumer<String> displayupdaterequest) {
         this.displayupdaterequest = displayupdaterequest;
+        this.timerlog = new TimerLog();
+        File file = FileUtil.toFile(dataobj.getPrimaryFile());
+        basedirectory = file == null ? null : file.getParentFile().toPath();
         try {
             createController(dataobj.getPrimaryFile().getInputStream());
         } catch (JsonException | IOException ex) {
@@ -80,6 +236,7 @@ public class Controller {
 
     public Controller(String resourcename, Consumer<String> displayupdaterequest) {
         this.displayupdaterequest = displayupdaterequest;
+        this.timerlog = new TimerLog();
         try {
             createController(this.getClass().getResourceAsStream(resourcename));
         } catch (JsonException | IOException ex) {
@@ -87,6 +244,76 @@ public class Controller {
         }
     }
 
+    /**
+     * Constructor for a headless controller (no display and no timer log),
+     * with a given seed (overriding any seed in the definition file) so that
+     * the run is repeatable.
+     *
+     * @param parsedjson the parsed definition file
+     * @param seed the random number generator seed
+     * @throws IOException if problems with the definition
+     */
+    public Controller(JsonObject parsedjson, long seed) throws IOException {
+        this(parsedjson, seed, null);
+    }
+
+    /**
+     * Constructor for a headless controller (no display and no timer log),
+     * with a given seed (overriding any seed in the definition file) so that
+     * the run is repeatable.
+     *
+     * @param parsedjson the parsed definition file
+     * @param seed the random number generator seed
+     * @param basedirectory the directory of the definition file, or null if
+     * not known
+     * @throws IOException if problems with the definition
+     */
+    public Controller(JsonObject parsedjson, long seed, Path basedirectory) throws IOException {
+        this.displayupdaterequest = (s) -> {
+        };
+        this.timerlog = new TimerLog(false);
+        this.basedirectory = basedirectory;
+        createController(parsedjson, seed, false);
+    }
+
+    /**
+     * Resolve the path of a file referenced by the definition file - relative
+     * paths are relative to the directory of the definition file (or the
+     * current directory if that is not known).
+     *
+     * @param filename the file name
+     * @return the path
+     */
+    public Path resolvePath(String filename) {
+        Path path = Paths.get(filename);
+        return path.isAbsolute() || basedirectory == null ? path : basedirectory.resolve(path);
+    }
+
+    /**
+     * Get the seed for the simulation - the seed in WIND-SHIFTS if defined,
+     * otherwise a fresh seed, so that each run is different.
+     *
+     * @param parsedjson the parsed definition file
+     * @return the seed
+     * @throws IOException if problems with the definition
+     */
+    static long getSeed(JsonObject parsedjson) throws IOException {
+        return LongParser.parse(parsedjson.getJsonObject("WIND-SHIFTS"), "seed")
+                .orElseGet(() -> new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Get the random source of this simulation. Components with random
+     * behaviour should derive their own source from it, by name, when they
+     * are created - so that their sources do not depend on the order in which
+     * they are created.
+     *
+     * @return the random source
+     */
+    public RandomSource getRandom() {
+        return random;
+    }
+
     Dimension getGraphicDimension() {
         return sailingarea.getGraphicDimension(displayparameters.zoom);
     }
@@ -94,48 +321,408 @@ public class Controller {
     void paint(Graphics2D g2D) {
         try {
             double scale = displayparameters.zoom;
+            Frame frame = currentframe;
             sailingarea.draw(g2D, scale);
-            windflow.draw(g2D, scale);
+            windflow.draw(g2D, scale, frame.windframe);
             if (waterflow != null) {
-                waterflow.draw(g2D, scale);
+                waterflow.draw(g2D, scale, frame.waterframe);
             }
-            course.draw(g2D, scale);
-            boats.draw(g2D, scale);
+            course.draw(g2D, scale, windflow, frame.windframe);
+            boats.draw(g2D, scale, frame, windflow);
         } catch (IOException ex) {
             reportfailure(ex);
         }
     }
 
+    private Frame captureFrame() {
+        Map<String, BoatFrame> boatframes = new HashMap<>();
+        for (Boat boat : boats.getBoats()) {
+            boatframes.put(boat.name, boat.getFrame());
+        }
+        return new Frame(simulationtime, windflow.getFrame(),
+                waterflow == null ? null : waterflow.getFrame(), boatframes);
+    }
+
     /**
-     * Start running the simulation.
+     * Start running the simulation - the simulation runs ahead on the
+     * producer thread, and the display plays it back.
      */
     public void start() {
-        if (isRunning) {
+        if (isFastForwarding.get()) {
             return;
         }
-        int rate = (int) (displayparameters.secondsperdisplay * 1000 / displayparameters.speedup);
-        timer = new Timer();
-        runner = new TimeStepRunner();
-        timer.scheduleAtFixedRate(runner, 0, rate);
-        isRunning = true;
+        startProducer();
+        scheduler.start(getTickPeriod());
+    }
+
+    synchronized void startProducer() {
+        if (producer != null) {
+            return; // already running, or has run to completion
+        }
+        if (frames.isEmpty()) {
+            frames.add(currentframe);
+            frames.setPlayhead(currentframe.time);
+        }
+        producing = true;
+        producer = new Thread(() -> produce(), "Simulation Producer");
+        producer.setDaemon(true);
+        producer.start();
     }
 
     /**
-     * Terminate the simulation.
+     * The producer - run the simulation, adding a frame to the buffer every
+     * display interval, while it is less than half the buffer ahead of the
+     * playhead, until all boats have finished or the time limit is reached.
      */
-    public void stop() {
-        if (!isRunning) {
+    private void produce() {
+        double lookahead = frames.getCapacity() * displayparameters.secondsperdisplay / 2.0;
+        try {
+            while (producing) {
+                frames.awaitRoom(lookahead);
+                Frame frame;
+                synchronized (this) {
+                    if (!producing || boatstrategies.isAllFinished()
+                            || displayparameters.timelimit - simulationtime < TIMEEPSILON) {
+                        break;
+                    }
+                    double endtime = simulationtime + displayparameters.secondsperdisplay;
+                    while (endtime - simulationtime > TIMEEPSILON) {
+                        timeStep(endtime - simulationtime);
+                    }
+                    frame = captureFrame();
+                }
+                frames.add(frame);
+            }
+        } catch (InterruptedException ex) {
+            // stopped - nothing more to do
+        } catch (IOException ex) {
+            reportfailure(ex);
+        }
+        producing = false;
+    }
+
+    /**
+     * Stop the producer thread, and wait for it to finish. Must not be called
+     * while holding the controller lock, as the producer may be waiting for
+     * it.
+     */
+    void stopProducer() {
+        Thread thread;
+        synchronized (this) {
+            thread = producer;
+            producer = null;
+            producing = false;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Display the current state of the simulation, discarding any frames
+     * which have been run ahead - used when the simulation has been moved.
+     */
+    private synchronized void showSimulationState() {
+        frames.clear();
+        currentframe = captureFrame();
+        frames.setPlayhead(currentframe.time);
+        displayupdaterequest.accept(mmssformat(currentframe.time));
+    }
+
+    private void playbackTicks(int ticks) {
+        Frame frame = frames.getFrame(currentframe.time + displayparameters.secondsperdisplay * ticks + TIMEEPSILON)
+                .orElse(currentframe);
+        if (frame.time > currentframe.time) {
+            currentframe = frame;
+            frames.setPlayhead(frame.time);
+        } else if (!producing && frames.getNewest().orElse(currentframe) == currentframe) {
+            scheduler.stop(); // the run has been played to the end
+        }
+        displayupdaterequest.accept(mmssformat(currentframe.time));
+    }
+
+    /**
+     * Seek to a time within the frame buffer - the display shows the frame at
+     * or before that time. The simulation (running ahead) is not affected.
+     *
+     * @param time the simulation time (seconds)
+     */
+    public void seek(double time) {
+        frames.getFrame(time + TIMEEPSILON).or(() -> frames.getOldest()).ifPresent(frame -> {
+            currentframe = frame;
+            frames.setPlayhead(frame.time);
+            displayupdaterequest.accept(mmssformat(frame.time));
+        });
+    }
+
+    Frame getCurrentFrame() {
+        return currentframe;
+    }
+
+    /**
+     * Get the time of the frame being displayed.
+     *
+     * @return the time (seconds)
+     */
+    public double getDisplayTime() {
+        return currentframe.time;
+    }
+
+    /**
+     * Get the time of the oldest frame in the frame buffer - the earliest time
+     * which can be sought.
+     *
+     * @return the time (seconds)
+     */
+    public double getBufferStartTime() {
+        return frames.getOldest().map(frame -> frame.time).orElse(currentframe.time);
+    }
+
+    /**
+     * Get the time of the newest frame in the frame buffer - the latest time
+     * which can be sought.
+     *
+     * @return the time (seconds)
+     */
+    public double getBufferEndTime() {
+        return frames.getNewest().map(frame -> frame.time).orElse(currentframe.time);
+    }
+
+    /**
+     * Change the simulation speedup; can be used while the simulation is
+     * running.
+     *
+     * @param speedup the new speedup
+     */
+    public void setSpeedup(double speedup) {
+        if (speedup <= 0) {
             return;
         }
-        isRunning = false;
-        timer.cancel();
+        this.speedup = speedup;
+        scheduler.setPeriod(getTickPeriod());
+    }
+
+    public double getSpeedup() {
+        return speedup;
     }
 
+    private long getTickPeriod() {
+        return (long) (displayparameters.secondsperdisplay * 1000000000L / speedup);
+    }
+
+    /**
+     * Run the simulation headless on a worker thread, as fast as possible,
+     * until all boats have finished or the time limit is reached, and then
+     * update the display once.
+     *
+     * @param timelimit the maximum simulation time (seconds)
+     */
+    public void fastForward(int timelimit) {
+        if (scheduler.isRunning() || !isFastForwarding.compareAndSet(false, true)) {
+            return;
+        }
+        stopProducer();
+        Thread worker = new Thread(() -> {
+            try {
+                FastForwardReport report;
+                synchronized (this) {
+                    report = runToFinish(timelimit);
+                }
+                StatusDisplayer.getDefault().setStatusText(report.toString());
+            } catch (IOException ex) {
+                reportfailure(ex);
+            } finally {
+                isFastForwarding.set(false);
+            }
+            showSimulationState();
+        }, "Fast Forward Simulation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Run the simulation in a tight loop (without any display updates) until
+     * all boats have finished or the time limit is reached.
+     *
+     * @param timelimit the maximum simulation time (seconds)
+     * @return the report of the run
+     * @throws IOException if problems
+     */
+    public FastForwardReport runToFinish(int timelimit) throws IOException {
+        int steps = 0;
+        long starttime = System.nanoTime();
+        while (timelimit - simulationtime > TIMEEPSILON && !boatstrategies.isAllFinished()) {
+            timeStep(timelimit - simulationtime);
+            steps++;
+        }
+        return new FastForwardReport(steps, System.nanoTime() - starttime,
+                boatstrategies.isAllFinished(), mmssformat(simulationtime));
+    }
+
+    /**
+     * Run an ensemble of independent copies of this scenario on a worker
+     * thread, and write the distribution of results to the output window.
+     *
+     * @param runs the number of runs
+     */
+    public void runEnsemble(int runs) {
+        Thread worker = new Thread(() -> {
+            try {
+                long seed = getSeed(parsedjson);
+                StatusDisplayer.getDefault().setStatusText("Running ensemble of " + runs + " runs");
+                EnsembleResults results = new EnsembleRunner(parsedjson, basedirectory, displayparameters.timelimit).run(runs, seed);
+                StatusDisplayer.getDefault().setStatusText("Ensemble of " + runs + " runs completed in "
+                        + results.getElapsedNanos() / 1000000 + " ms");
+                results.write2output("Ensemble Results");
+            } catch (IOException ex) {
+                reportfailure(ex);
+            }
+        }, "Ensemble Simulation");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Pause the simulation display - the simulation continues to run ahead,
+     * until the frame buffer is full.
+     */
+    public void stop() {
+        scheduler.stop();
+    }
+
+    /**
+     * Terminate the simulation.
+     */
     public void reset() {
         stop();
+        stopProducer();
         timerlog.clear();
     }
 
+    public double getSimulationTime() {
+        return simulationtime;
+    }
+
+    /**
+     * Rewind the simulation (stopping it if running).
+     *
+     * @param seconds the time to go back from the time displayed (seconds)
+     */
+    public void rewind(double seconds) {
+        scrubTo(currentframe.time - seconds);
+    }
+
+    /**
+     * Move the simulation to a given time (stopping it if running), and
+     * update the display.
+     *
+     * @param time the simulation time (seconds)
+     */
+    public void scrubTo(double time) {
+        if (isFastForwarding.get()) {
+            return;
+        }
+        stop();
+        stopProducer();
+        try {
+            moveTo(time);
+        } catch (IOException ex) {
+            reportfailure(ex);
+        }
+        showSimulationState();
+    }
+
+    /**
+     * Move the simulation to a given time. Going back restores the latest
+     * snapshot at or before that time, and going forward (from there, or from
+     * now) reruns the simulation.
+     *
+     * Synchronised with the producer, which may still be running.
+     *
+     * @param time the simulation time (seconds)
+     * @throws IOException if problems
+     */
+    synchronized void moveTo(double time) throws IOException {
+        double target = Math.max(0, time);
+        if (target < simulationtime - TIMEEPSILON) {
+            restore(snapshots.getLatest(target)
+                    .orElseThrow(() -> new IOException("No snapshot available at " + mmssformat(target))));
+        }
+        while (target - simulationtime > TIMEEPSILON) {
+            timeStep(target - simulationtime);
+        }
+    }
+
+    /**
+     * Save the snapshots as a checkpoint file.
+     *
+     * @param os the output stream
+     * @throws IOException if problems
+     */
+    public synchronized void saveCheckpoint(OutputStream os) throws IOException {
+        snapshots.write(os);
+    }
+
+    /**
+     * Load the snapshots from a checkpoint file (written for the same
+     * definition), and restore the simulation to the latest of them.
+     *
+     * @param is the input stream
+     * @throws IOException if problems
+     */
+    public void loadCheckpoint(InputStream is) throws IOException {
+        stop();
+        stopProducer();
+        SnapshotStore checkpoint = SnapshotStore.read(is);
+        Snapshot latest = checkpoint.getLatest(Double.MAX_VALUE)
+                .orElseThrow(() -> new IOException("Malformed Checkpoint file - no snapshots"));
+        synchronized (this) {
+            snapshots = checkpoint;
+            restore(latest);
+        }
+        showSimulationState();
+    }
+
+    private void takeSnapshotIfDue() throws IOException {
+        if (snapshots.isDue(simulationtime)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( DataOutputStream out = new DataOutputStream(bytes)) {
+                windflow.writeState(out);
+                out.writeBoolean(waterflow != null);
+                if (waterflow != null) {
+                    waterflow.writeState(out);
+                }
+                boatstrategies.writeState(this, out);
+            }
+            snapshots.add(new Snapshot(simulationtime, bytes.toByteArray(), timerlog.size()));
+        }
+    }
+
+    private void restore(Snapshot snapshot) throws IOException {
+        try ( DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot.getState()))) {
+            windflow.readState(in);
+            if (in.readBoolean() != (waterflow != null)) {
+                throw new IOException("Malformed Snapshot - the water flow does not match the definition");
+            }
+            if (waterflow != null) {
+                waterflow.readState(in);
+            }
+            boatstrategies.readState(this, in);
+        }
+        simulationtime = snapshot.time;
+        windflow.setTime(simulationtime);
+        if (waterflow != null) {
+            waterflow.setTime(simulationtime);
+        }
+        timerlog.truncate(snapshot.logsize);
+        snapshots.discardAfter(snapshot.time);
+    }
+
     private void reportfailure(Exception ex) {
         StatusDisplayer.getDefault().setStatusText(ex.getLocalizedMessage());
     }
@@ -166,34 +753,140 @@ public class Controller {
 
     }
 
-    private TimerLog timerlog = new TimerLog();
+    private void timeStep(double maxdt) throws IOException {
+//TODO timer call to actionFutureParameters disabled - will needto be enabled in the future                   
+//        sailingarea.actionFutureParameters(simulationtime);
+        double dt = Math.min(getTimeStep(), maxdt);
+        advanceFlows(dt);
+        // only a full, defined time step can be the start of a warp
+        double warptime = Math.abs(dt - displayparameters.timestep) < TIMEEPSILON ? getWarpTime(maxdt) : 0;
+        if (windshadow != null) {
+            windshadow.update(boats.getBoats(), windflow);
+        }
+        boolean legcompleted = boatstrategies.timerAdvance(this, simulationtime, dt, timerlog);
+        simulationtime += dt;
+        if (warptime >= 2 * dt && !legcompleted && boatstrategies.isAllSailingOn()) {
+            warp((int) Math.floor(warptime / dt) - 1, dt);
+        }
+        takeSnapshotIfDue();
+    }
+
+    private void advanceFlows(double dt) throws IOException {
+        timerlog.setTime(mmssformat(simulationtime));
+        windflow.timerAdvance(simulationtime, dt, timerlog);
+        if (waterflow != null) {
+            waterflow.timerAdvance(simulationtime, dt, timerlog);
+        }
+    }
+
+    /**
+     * Get the time for which the simulation can warp ahead from the start of
+     * this time step - ie the time for which the flows will be uniform and
+     * unchanged, and no boat's decision can change, so long as the decisions
+     * made in this step are to sail on. There is no warp if the boats cast
+     * wind shadows, as the wind at each boat then changes as they move. The
+     * warp ends at the next snapshot time, so that no snapshot is missed.
+     *
+     * @param maxdt the maximum time
+     * @return the time (seconds), zero if no warp is possible
+     * @throws IOException if problems
+     */
+    private double getWarpTime(double maxdt) throws IOException {
+        if (!displayparameters.timewarp || boats.getBoats().isEmpty() || windshadow != null) {
+            return 0;
+        }
+        double warptime = Math.min(Math.min(maxdt, snapshots.getNextSnapshotTime() - simulationtime),
+                windflow.getSteadyTime(simulationtime));
+        if (waterflow != null) {
+            warptime = Math.min(warptime, waterflow.getSteadyTime(simulationtime));
+        }
+        if (warptime < displayparameters.timestep * 2) {
+            return 0;
+        }
+        Location probe = boats.getBoats().iterator().next().location;
+        getFlows(probe);
+        return Math.min(warptime, boatstrategies.getTimeToNextDecision(warpwind, warpwater));
+    }
+
+    /**
+     * Warp ahead - move all boats on in their current direction, filling in
+     * their tracks, without evaluating any decisions.
+     *
+     * @param steps the number of time steps
+     * @param dt the time step (seconds)
+     * @throws IOException if problems
+     */
+    private void warp(int steps, double dt) throws IOException {
+        Location probe = boats.getBoats().iterator().next().location;
+        getFlows(probe);
+        for (int i = 0; i < steps; i++) {
+            advanceFlows(dt);
+            boatstrategies.sailOn(dt, warpwind, warpwater);
+            simulationtime += dt;
+        }
+    }
+
+    // get the wind and water flows at a location, for the time warp
+    private void getFlows(Location location) {
+        windflow.getFlow(location.getX(), location.getY(), warpwind);
+        if (waterflow == null) {
+            warpwater.set(0, 0);
+        } else {
+            waterflow.getFlow(location.getX(), location.getY(), warpwater);
+        }
+    }
 
-    private class TimeStepRunner extends TimerTask {
+    /**
+     * Get the length of the next time step. This is the defined time step,
+     * unless adaptive time steps are enabled, the flows are steady, the boats
+     * cast no wind shadows and all boats are sailing on, clear of the marks;
+     * when a longer step (a whole number of time steps, up to the maximum
+     * time step) is used.
+     *
+     * @return the time step (seconds)
+     * @throws IOException if problems
+     */
+    private double getTimeStep() throws IOException {
+        double timestep = displayparameters.timestep;
+        if (!displayparameters.adaptivetimestep || !windflow.isSteady() || windshadow != null
+                || (waterflow != null && !waterflow.isSteady())) {
+            return timestep;
+        }
+        double dt = boatstrategies.getMaxTimeStep(this, timestep, displayparameters.maxtimestep);
+        return Math.floor(dt / timestep) * timestep;
+    }
+
+    /**
+     * The outcome of a fast forward run.
+     */
+    public static class FastForwardReport {
+
+        public final int steps;
+        public final long elapsednanos;
+        public final boolean finished;
+        public final String finishtime;
+
+        FastForwardReport(int steps, long elapsednanos, boolean finished, String finishtime) {
+            this.steps = steps;
+            this.elapsednanos = elapsednanos;
+            this.finished = finished;
+            this.finishtime = finishtime;
+        }
+
+        public double getStepsPerSecond() {
+            return elapsednanos == 0 ? 0 : steps * 1e9 / elapsednanos;
+        }
 
         @Override
-        public void run() {
-            try {
-                int secondsperdisplay = displayparameters.secondsperdisplay;
-                while (secondsperdisplay > 0) {
-//TODO timer call to actionFutureParameters disabled - will needto be enabled in the future                   
-//                    sailingarea.actionFutureParameters(simulationtime);
-                    timerlog.setTime(mmssformat(simulationtime));
-                    windflow.timerAdvance(simulationtime, timerlog);
-                    if (waterflow != null) {
-                        waterflow.timerAdvance(simulationtime, timerlog);
-                    }
-                    boatstrategies.timerAdvance(Controller.this, simulationtime, timerlog);
-                    secondsperdisplay--;
-                    simulationtime++;
-                }
-                displayupdaterequest.accept("Time: " + mmssformat(simulationtime));
-            } catch (IOException ex) {
-                reportfailure(ex);
-            }
+        public String toString() {
+            return (finished ? "All boats finished at " : "Time limit reached at ") + finishtime
+                    + " - " + steps + " steps in " + elapsednanos / 1000000 + " ms ("
+                    + Math.round(getStepsPerSecond()) + " steps/second)";
         }
     }
 
-    private String mmssformat(int seconds) {
+    private String mmssformat(double time) {
+        int seconds = (int) Math.floor(time + TIMEEPSILON);
         int mins = seconds / 60;
         int secs = seconds % 60;
         String ss = Integer.toString(secs);
@@ -17,6 +17,7 @@ package uk.theretiredprogrammer.racetrainingsketch.ui;
 
 import java.io.IOException;
 import javax.json.JsonObject;
+import uk.theretiredprogrammer.racetrainingsketch.core.BooleanParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.DoubleParser;
 import uk.theretiredprogrammer.racetrainingsketch.core.IntegerParser;
 
@@ -32,6 +33,16 @@ public class DisplayParameters  {
     public final double zoom;
     public final int secondsperdisplay;
     public final double speedup;
+    public final int timelimit;
+    public final int ensembleruns;
+    public final double timestep;
+    public final boolean adaptivetimestep;
+    public final double maxtimestep;
+    public final boolean timewarp;
+    public final double snapshotinterval;
+    public final int snapshots;
+    public final double rewindinterval;
+    public final int framebuffer;
 
     public DisplayParameters(JsonObject parsedjson) throws IOException {
         JsonObject paramsobj = parsedjson.getJsonObject("DISPLAY");
@@ -41,6 +52,35 @@ public class DisplayParameters  {
         zoom = DoubleParser.parse(paramsobj, "zoom").orElse(SCALE_DEFAULT);
         secondsperdisplay = IntegerParser.parse(paramsobj, "secondsperdisplay").orElse(1);
         speedup = DoubleParser.parse(paramsobj, "speedup").orElse(1.0);
+        timelimit = IntegerParser.parse(paramsobj, "timelimit").orElse(7200);
+        ensembleruns = IntegerParser.parse(paramsobj, "ensembleruns").orElse(1000);
+        // the time step (seconds) - smaller for accuracy, larger for speed; if
+        // adaptive, this is the step used near marks and when turning, with
+        // steps of up to maxtimestep being taken elsewhere
+        timestep = DoubleParser.parse(paramsobj, "timestep").orElse(1.0);
+        adaptivetimestep = BooleanParser.parse(paramsobj, "adaptivetimestep").orElse(false);
+        maxtimestep = DoubleParser.parse(paramsobj, "maxtimestep").orElse(10.0);
+        // if set, jump ahead (without evaluating decisions or logging them)
+        // while all boats can only sail on in a uniform and steady flow
+        timewarp = BooleanParser.parse(paramsobj, "timewarp").orElse(false);
+        if (timestep <= 0 || maxtimestep < timestep) {
+            throw new IOException("Malformed Definition File - timestep must be positive and no greater than maxtimestep");
+        }
+        // snapshots of the simulation are taken every snapshotinterval seconds
+        // (so that it can be rewound), with at most snapshots held - the
+        // interval is increased as needed
+        snapshotinterval = DoubleParser.parse(paramsobj, "snapshotinterval").orElse(10.0);
+        snapshots = IntegerParser.parse(paramsobj, "snapshots").orElse(1000);
+        rewindinterval = DoubleParser.parse(paramsobj, "rewindinterval").orElse(30.0);
+        if (snapshotinterval <= 0 || snapshots < 2) {
+            throw new IOException("Malformed Definition File - snapshotinterval must be positive and snapshots at least 2");
+        }
+        // the number of frames (one per display interval) held for playback;
+        // the simulation runs up to half of this ahead of the display
+        framebuffer = IntegerParser.parse(paramsobj, "framebuffer").orElse(600);
+        if (framebuffer < 2) {
+            throw new IOException("Malformed Definition File - framebuffer must be at least 2");
+        }
     }
 
 // TODO action Future Parameter disabled (due to disabled method in Element) - needs to be reworked later
@@ -15,20 +15,37 @@
  */
 package uk.theretiredprogrammer.racetrainingsketch.ui;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import javax.swing.Action;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
+import javax.swing.JSlider;
+import javax.swing.JSpinner;
 import javax.swing.JToolBar;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 import org.netbeans.core.spi.multiview.CloseOperationState;
 import org.netbeans.core.spi.multiview.MultiViewElement;
 import org.netbeans.core.spi.multiview.MultiViewElementCallback;
+import org.openide.awt.StatusDisplayer;
 import org.openide.awt.UndoRedo;
 import org.openide.filesystems.FileChangeAdapter;
 import org.openide.filesystems.FileEvent;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
 import org.openide.util.lookup.Lookups;
 import org.openide.util.lookup.ProxyLookup;
 import org.openide.windows.TopComponent;
@@ -52,11 +69,22 @@ public final class SimulationDisplay extends JPanel implements MultiViewElement
     private final DefFileDataObject dataobj;
     private JToolBar toolbar;
     private final JLabel timeinfo = new JLabel("Time: 0:00");
+    private final AtomicBoolean updatepending = new AtomicBoolean(false);
+    private volatile String updatetime;
+    private JSlider timeline;
+    private JSpinner speedupspinner;
+    private final JProgressBar loadingprogress = new JProgressBar();
+    private boolean updatingtimeline = false;
     private transient MultiViewElementCallback callback;
     //
     private SailingArea scenario;
     private DisplayPanel dp;
-    private Controller controller;
+    private volatile Controller controller;
+    // the controller most recently built - only used on the loader thread, so
+    // that a reload is applied even before the controller has been displayed
+    private Controller latest;
+    // simulations are loaded, and reloaded, one at a time, in the background
+    private static final RequestProcessor LOADER = new RequestProcessor("Simulation Loader");
 
     /**
      * Get the simulation display instance which is in focus.
@@ -83,60 +111,206 @@ public final class SimulationDisplay extends JPanel implements MultiViewElement
         dataobj.getPrimaryFile().addFileChangeListener(new FileChangeAdapter() {
             @Override
             public void fileChanged(FileEvent fe) {
-                reset();
+                reload();
             }
         });
-        setup();
+        createToolbar();
     }
 
-    private void setup() {
-        controller = new Controller(dataobj, (t) -> updateDisplay(t));
-        dp = new DisplayPanel(controller);
-        this.add(new JScrollPane(dp));
-        validate();
-        repaint();
+    private void createToolbar() {
         toolbar = new JToolBar();
         toolbar.addSeparator();
         toolbar.add(new ResetAction(this));
+        toolbar.add(new RewindAction(this));
         toolbar.add(new StartAction(this));
         toolbar.add(new PauseAction(this));
+        toolbar.add(new FastForwardAction(this));
+        toolbar.add(new EnsembleAction(this));
+        toolbar.addSeparator();
+        toolbar.add(new SaveCheckpointAction(this));
+        toolbar.add(new LoadCheckpointAction(this));
         toolbar.addSeparator();
         toolbar.add(new DisplayAllLogAction(this));
         toolbar.add(new DisplayFilteredLogAction(this));
         toolbar.addSeparator();
         toolbar.add(timeinfo);
+        // seek within the frames which have been simulated (and are buffered)
+        timeline = new JSlider(0, 0, 0);
+        timeline.addChangeListener((e) -> {
+            if (!updatingtimeline) {
+                withController(c -> c.seek(timeline.getValue()));
+            }
+        });
+        toolbar.add(timeline);
+        toolbar.addSeparator();
+        toolbar.add(new JLabel("Speedup: "));
+        speedupspinner = new JSpinner(new SpinnerNumberModel(1.0, 0.1, 1000.0, 1.0));
+        speedupspinner.addChangeListener((e) -> withController(c -> c.setSpeedup((Double) speedupspinner.getValue())));
+        toolbar.add(speedupspinner);
         toolbar.addSeparator();
+        loadingprogress.setIndeterminate(true);
+        loadingprogress.setStringPainted(true);
+        loadingprogress.setString("Loading");
+        loadingprogress.setVisible(false);
+        toolbar.add(loadingprogress);
+    }
+
+    /**
+     * Build the controller from the definition file, on the loader thread,
+     * and then display it.
+     */
+    private void load() {
+        Controller previous = controller;
+        loadingprogress.setVisible(true);
+        LOADER.post(() -> {
+            if (previous != null) {
+                previous.reset();
+            }
+            Controller loaded = new Controller(dataobj, (t) -> updateDisplay(t));
+            latest = loaded;
+            SwingUtilities.invokeLater(() -> display(loaded));
+        });
     }
 
+    private void display(Controller loaded) {
+        controller = loaded;
+        removeAll();
+        dp = new DisplayPanel(loaded);
+        this.add(new JScrollPane(dp));
+        speedupspinner.setValue(Math.max(0.1, loaded.getSpeedup()));
+        loadingprogress.setVisible(false);
+        validate();
+        repaint();
+        updateDisplay("0:00");
+    }
+
+    // actions are ignored until the controller has been loaded
+    private void withController(Consumer<Controller> action) {
+        Controller c = controller;
+        if (c != null) {
+            action.accept(c);
+        }
+    }
+
+    // may be called from any thread - coalesced so that at most one update is
+    // queued on the event dispatch thread at a time
     private void updateDisplay(String t) {
-        timeinfo.setText("Time: " + t);
-        dp.updateDisplay();
+        updatetime = t;
+        if (updatepending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                updatepending.set(false);
+                timeinfo.setText("Time: " + updatetime);
+                if (dp != null) {
+                    updateTimeline();
+                    dp.updateDisplay();
+                }
+            });
+        }
+    }
+
+    private void updateTimeline() {
+        updatingtimeline = true;
+        timeline.setMinimum((int) Math.floor(controller.getBufferStartTime()));
+        timeline.setMaximum((int) Math.ceil(controller.getBufferEndTime()));
+        timeline.setValue((int) Math.round(controller.getDisplayTime()));
+        updatingtimeline = false;
     }
 
     public void start() {
-        controller.start();
+        withController(c -> c.start());
     }
 
     public void stop() {
-        controller.stop();
+        withController(c -> c.stop());
+    }
+
+    public void fastForward() {
+        withController(c -> c.fastForward(c.displayparameters.timelimit));
+    }
+
+    public void runEnsemble() {
+        withController(c -> c.runEnsemble(c.displayparameters.ensembleruns));
+    }
+
+    public void rewind() {
+        withController(c -> c.rewind(c.displayparameters.rewindinterval));
+    }
+
+    public void saveCheckpoint() {
+        Controller controller = this.controller;
+        if (controller == null) {
+            return;
+        }
+        try ( OutputStream os = new FileOutputStream(getCheckpointFile())) {
+            controller.saveCheckpoint(os);
+            StatusDisplayer.getDefault().setStatusText("Checkpoint saved");
+        } catch (IOException ex) {
+            StatusDisplayer.getDefault().setStatusText(ex.getLocalizedMessage());
+        }
+    }
+
+    public void loadCheckpoint() {
+        Controller controller = this.controller;
+        if (controller == null) {
+            return;
+        }
+        try ( InputStream is = new FileInputStream(getCheckpointFile())) {
+            controller.loadCheckpoint(is);
+            StatusDisplayer.getDefault().setStatusText("Checkpoint loaded");
+        } catch (IOException ex) {
+            StatusDisplayer.getDefault().setStatusText(ex.getLocalizedMessage());
+        }
+    }
+
+    // the checkpoint file is held alongside the definition file
+    private File getCheckpointFile() throws IOException {
+        FileObject deffile = dataobj.getPrimaryFile();
+        File file = FileUtil.toFile(deffile);
+        if (file == null) {
+            throw new IOException("Checkpoint files are only supported for local definition files");
+        }
+        return new File(file.getParentFile(), deffile.getName() + ".checkpoint");
     }
 
     public void reset() {
-        controller.stop();
-        removeAll();
-        setup();
+        if (controller != null) {
+            load();
+        }
+    }
+
+    /**
+     * Reload the definition file after it has been changed - only the parts
+     * of the simulation affected by the changes are rebuilt. The reload runs
+     * on the loader thread after any load already queued, so it is applied to
+     * that controller even if it is still waiting to be displayed. Nothing to
+     * do if the simulation has not yet been loaded, as it will be loaded from
+     * the changed file.
+     */
+    public void reload() {
+        LOADER.post(() -> {
+            Controller c = latest;
+            if (c != null) {
+                c.reload(dataobj);
+                SwingUtilities.invokeLater(() -> {
+                    if (dp != null) {
+                        dp.revalidate();
+                        dp.repaint();
+                    }
+                });
+            }
+        });
     }
 
     public void displaylog() {
-        controller.displaylog();
+        withController(c -> c.displaylog());
     }
 
     public void displayfilteredlog() {
-        controller.displayfilteredlog("SELECTED");
+        withController(c -> c.displayfilteredlog("SELECTED"));
     }
 
     public void keyAction(String key) {
-        controller.keyAction(key);
+        withController(c -> c.keyAction(key));
     }
 
     @Override
@@ -165,11 +339,15 @@ public final class SimulationDisplay extends JPanel implements MultiViewElement
 
     @Override
     public void componentClosed() {
-        stop();
+        withController(c -> c.reset());
     }
 
     @Override
     public void componentShowing() {
+        // the simulation is only loaded when first shown
+        if (controller == null && !loadingprogress.isVisible()) {
+            load();
+        }
     }
 
     @Override
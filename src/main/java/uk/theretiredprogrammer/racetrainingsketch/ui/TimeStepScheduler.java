@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ui;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Drift compensating scheduler for the simulation time steps.
+ *
+ * Each tick is scheduled against an absolute target time rather than a fixed
+ * delay, so lateness in one tick is recovered in the following ones. If the
+ * scheduler falls behind (slow paint or busy machine) the missed ticks are
+ * caught up in a single batch, bounded by MAXCATCHUPTICKS; any backlog beyond
+ * that is dropped and the schedule resynchronised to the current time.
+ *
+ * Each start (or change of period) begins a new chain of ticks; a tick from
+ * an earlier chain, which may already be running, does not schedule any
+ * more ticks.
+ *
+ * All simulations share a single scheduler thread.
+ *
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+class TimeStepScheduler {
+
+    private static final int MAXCATCHUPTICKS = 5;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Simulation Time Step Scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final IntConsumer ticksaction;
+    private long periodnanos;
+    private long nextticknanos;
+    private boolean isRunning;
+    private long generation; // the current chain of ticks
+    private ScheduledFuture<?> future;
+
+    /**
+     * Constructor.
+     *
+     * @param ticksaction the action to run when ticks are due - it is given
+     * the number of ticks to process
+     */
+    TimeStepScheduler(IntConsumer ticksaction) {
+        this.ticksaction = ticksaction;
+    }
+
+    synchronized void start(long periodnanos) {
+        if (isRunning) {
+            return;
+        }
+        this.periodnanos = periodnanos;
+        isRunning = true;
+        nextticknanos = System.nanoTime();
+        schedule(0);
+    }
+
+    synchronized void stop() {
+        if (!isRunning) {
+            return;
+        }
+        isRunning = false;
+        future.cancel(false);
+    }
+
+    synchronized boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Change the tick period while running; the next tick is rescheduled
+     * relative to the previous one using the new period.
+     *
+     * @param periodnanos the new period (nanoseconds)
+     */
+    synchronized void setPeriod(long periodnanos) {
+        long previoustick = nextticknanos - this.periodnanos;
+        this.periodnanos = periodnanos;
+        if (isRunning) {
+            future.cancel(false);
+            nextticknanos = previoustick + periodnanos;
+            schedule(nextticknanos - System.nanoTime());
+        }
+    }
+
+    // start a new chain of ticks
+    private void schedule(long delaynanos) {
+        long chain = ++generation;
+        future = SCHEDULER.schedule(() -> tick(chain), Math.max(0, delaynanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void tick(long chain) {
+        int due;
+        synchronized (this) {
+            if (!isRunning || chain != generation) {
+                return;
+            }
+            long lateness = System.nanoTime() - nextticknanos;
+            due = 1 + (int) Math.min(MAXCATCHUPTICKS - 1, Math.max(0, lateness / periodnanos));
+            nextticknanos += due * periodnanos;
+        }
+        ticksaction.accept(due);
+        synchronized (this) {
+            // stopped, or restarted or the period changed while running the ticks
+            if (!isRunning || chain != generation) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - nextticknanos > MAXCATCHUPTICKS * periodnanos) {
+                nextticknanos = now; // too far behind - drop the backlog
+            }
+            future = SCHEDULER.schedule(() -> tick(chain), Math.max(0, nextticknanos - now), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -59,5 +59,13 @@ public interface Timerable {
 //        }
 //    }
     
-    public void timerAdvance(int time, TimerLog timerlog) throws IOException;
+    /**
+     * Advance time by one time step.
+     *
+     * @param time the simulation time at the start of the step (seconds)
+     * @param dt the length of the step (seconds)
+     * @param timerlog the timer log
+     * @throws IOException if problems
+     */
+    public void timerAdvance(double time, double dt, TimerLog timerlog) throws IOException;
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class PolarFileTest {
+
+    private final static double DELTA = 0.0000001;
+    // the Laser 2 polar
+    private final static int[] ANGLES = new int[]{0, 40, 45, 60, 75, 90, 110, 120, 150, 180};
+    private final static int[] WINDSPEEDS = new int[]{2, 4, 6, 8, 10, 12, 14, 16, 18, 20};
+    private final static double[][] SPEEDS = new double[][]{
+        {-0.3, 0, 1.1, 1.1, 1.5, 2, 2, 2, 1.2, 0.8},
+        {-0.8, 0, 2.5, 2.9, 2.9, 3.8, 3.5, 3, 2.3, 1.8},
+        {-1.0, 0, 3.1, 3.1, 4.1, 5.6, 5, 4.2, 3.2, 2.5},
+        {-1.1, 0, 3.5, 3.5, 4.6, 6.9, 6.5, 5.8, 4.2, 3.6},
+        {-1.2, 0, 3.9, 3.9, 5.1, 10.9, 10.0, 8, 5, 4.5},
+        {-1.5, 0, 4.3, 4.3, 5.7, 12.4, 13, 10, 6, 5},
+        {-1.5, 0, 5.1, 5.1, 6.5, 13.5, 14.5, 12, 7.5, 5.5},
+        {-1.5, 0, 5.2, 5.2, 7.0, 14, 17, 14, 9, 7.1},
+        {-1.5, 0, 5.3, 5.3, 7.1, 14.5, 18, 15.8, 10.2, 7.8},
+        {-1.5, 0, 5.3, 5.3, 7.1, 15, 19, 17.5, 12, 9}
+    };
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("polarfiletest");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try ( Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path writeTabSeparated(String name) throws IOException {
+        List<String> lines = new ArrayList<>();
+        StringBuilder heading = new StringBuilder("twa/tws");
+        for (int windspeed : WINDSPEEDS) {
+            heading.append('\t').append(windspeed);
+        }
+        lines.add(heading.toString());
+        for (int i = 0; i < ANGLES.length; i++) {
+            StringBuilder line = new StringBuilder(Integer.toString(ANGLES[i]));
+            for (double[] vector : SPEEDS) {
+                line.append('\t').append(vector[i]);
+            }
+            lines.add(line.toString());
+        }
+        Path path = directory.resolve(name);
+        Files.write(path, lines, StandardCharsets.UTF_8);
+        return path;
+    }
+
+    private Path writeJson(String name) throws IOException {
+        StringBuilder json = new StringBuilder("{\"length\": 4, \"width\": 1.5, \"inertia\": 0.25,"
+                + " \"maxturninganglepersecond\": 30, \"upwindrelative\": 45, \"downwindrelative\": 135,"
+                + " \"angles\": [");
+        for (int i = 0; i < ANGLES.length; i++) {
+            json.append(i == 0 ? "" : ", ").append(ANGLES[i]);
+        }
+        json.append("], \"vectors\": [");
+        for (int i = 0; i < WINDSPEEDS.length; i++) {
+            json.append(i == 0 ? "" : ", ").append("{\"windspeed\": ").append(WINDSPEEDS[i]).append(", \"speeds\": [");
+            for (int j = 0; j < ANGLES.length; j++) {
+                json.append(j == 0 ? "" : ", ").append(SPEEDS[i][j]);
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        Path path = directory.resolve(name);
+        Files.write(path, json.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void testTabSeparated() throws IOException {
+        System.out.println("tab separated polar file");
+        BoatMetrics metrics = PolarFile.load(writeTabSeparated("laser2.pol"));
+        assertEquals(12.4, metrics.getPotentialBoatSpeed(new Angle(90), 12), DELTA);
+        assertEquals((10.9 + 12.4) / 2, metrics.getPotentialBoatSpeed(new Angle(90), 11), DELTA);
+        assertEquals(9, metrics.getPotentialBoatSpeed(new Angle(180), 20), DELTA);
+        // the other metrics take their defaults
+        assertEquals(3, metrics.getLength(), DELTA);
+        assertEquals(50, metrics.getUpwindrelative().getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        System.out.println("json polar file");
+        BoatMetrics metrics = PolarFile.load(writeJson("laser2.json"));
+        assertEquals(12.4, metrics.getPotentialBoatSpeed(new Angle(90), 12), DELTA);
+        assertEquals((12.4 + 13) / 2, metrics.getPotentialBoatSpeed(new Angle(100), 12), DELTA);
+        assertEquals(4, metrics.getLength(), DELTA);
+        assertEquals(0.25, metrics.getInertia(), DELTA);
+        assertEquals(30, metrics.getMaxTurningAnglePerSecond().getDegrees(), DELTA);
+        assertEquals(45, metrics.getUpwindrelative().getDegrees(), DELTA);
+        assertEquals(135, metrics.getDownwindrelative().getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testShared() throws IOException {
+        System.out.println("shared polar file");
+        Path path = writeTabSeparated("laser2.pol");
+        BoatMetrics metrics = PolarFile.load(path);
+        assertSame(metrics, PolarFile.load(path));
+        assertSame(metrics, PolarFile.load(directory.resolve("./laser2.pol")));
+        // a changed file is loaded again
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 10000));
+        assertNotSame(metrics, PolarFile.load(path));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        System.out.println("malformed polar file");
+        Path path = directory.resolve("bad.pol");
+        Files.write(path, "twa/tws\t6\t8\n0\t0\t0\n90\t5\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PolarFile.load(path));
+        Files.write(path, "twa/tws\t6\t8\n0\t0\t0\n90\t5\t6\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PolarFile.load(path));
+        Files.write(path, "twa/tws\t6\t8\n0\t0\t0\n180\t5\tx\n".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PolarFile.load(path));
+        assertThrows(IOException.class, () -> PolarFile.load(directory.resolve("missing.pol")));
+    }
+
+    private JsonObject getDefinition(String file) throws IOException {
+        try ( InputStream is = this.getClass().getResourceAsStream("/windwardleeward-polarfile.json")) {
+            String definition = new String(is.readAllBytes(), StandardCharsets.UTF_8).replace("POLARFILE", file);
+            try ( JsonReader rdr = Json.createReader(new StringReader(definition))) {
+                return rdr.readObject();
+            }
+        }
+    }
+
+    @Test
+    public void testPolarFileBoat() throws IOException {
+        System.out.println("polar file boat sails as a laser 2");
+        writeJson("laser2.json");
+        // a relative file is relative to the directory of the definition file
+        Controller controller = new Controller(getDefinition("laser2.json"), 1, directory);
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        assertTrue(report.finished);
+        Controller laser2 = new Controller("/windwardleeward-single.json", (s) -> {
+        });
+        report = laser2.runToFinish(laser2.displayparameters.timelimit);
+        assertTrue(report.finished);
+        Boat boat = controller.boats.getBoat("Red");
+        Boat other = laser2.boats.getBoat("Red");
+        assertEquals(other.location, boat.location);
+        assertEquals(other.direction, boat.direction);
+    }
+
+    @Test
+    public void testLaser2Shared() throws IOException {
+        System.out.println("laser 2 metrics are shared");
+        Controller controller = new Controller("/windwardleeward-fleet.json", (s) -> {
+        });
+        BoatMetrics metrics = controller.boats.getBoat("Red").metrics;
+        for (Boat boat : controller.boats.getBoats()) {
+            assertSame(metrics, boat.metrics);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.boats;
+
+import java.io.IOException;
+import javax.json.Json;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.RandomSource;
+import uk.theretiredprogrammer.racetrainingsketch.flows.FlowVector;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class WindShadowTest {
+
+    private final static double DELTA = 0.0000001;
+
+    private WindShadow createShadow() throws IOException {
+        return createShadow(15);
+    }
+
+    private WindShadow createShadow(double angle) throws IOException {
+        return new WindShadow(Json.createObjectBuilder()
+                .add("length", 30)
+                .add("angle", angle)
+                .add("speedloss", 0.3)
+                .add("bend", 5)
+                .build());
+    }
+
+    // the wind at a boat, 12 knots from the north, in the shadows of the others
+    private FlowVector getWind(WindShadow shadow, int index, double px, double py) {
+        FlowVector wind = new FlowVector();
+        wind.set(0, 12);
+        shadow.apply(index, px, py, wind);
+        return wind;
+    }
+
+    @Test
+    public void testSingleShadow() throws IOException {
+        System.out.println("single shadow");
+        WindShadow shadow = createShadow();
+        // wind from the north - the shadow of the boat at (500,500) lies to the south
+        shadow.update(new double[]{500, 500}, new double[]{500, 480}, new double[]{0, 0});
+        FlowVector wind = getWind(shadow, 1, 500, 480);
+        assertEquals(12 * (1 - 0.3 / 3), wind.getSpeed(), DELTA);
+        assertEquals(0, wind.getDegrees(), DELTA);
+        // the boat casting the shadow is in clear air
+        wind = getWind(shadow, 0, 500, 500);
+        assertEquals(12, wind.getSpeed(), DELTA);
+        assertEquals(0, wind.getDegrees(), DELTA);
+        // off the centre line the wind is bent away from it
+        double across = 20 * Math.tan(Math.toRadians(15)) / 2;
+        wind = getWind(shadow, 1, 500 - across, 480);
+        assertEquals(12 * (1 - 0.3 / 6), wind.getSpeed(), DELTA);
+        assertEquals(5.0 / 6, wind.getDegrees(), DELTA);
+        wind = getWind(shadow, 1, 500 + across, 480);
+        assertEquals(-5.0 / 6, wind.getDegrees(), DELTA);
+        // outside the cone, beyond its length and upwind of the boat
+        assertEquals(12, getWind(shadow, 1, 520, 480).getSpeed(), DELTA);
+        assertEquals(12, getWind(shadow, 1, 500, 460).getSpeed(), DELTA);
+        assertEquals(12, getWind(shadow, 1, 500, 520).getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testNeighbourSearchMatchesAllPairs() throws IOException {
+        System.out.println("neighbour search matches all pairs");
+        // close to north, in all directions, and with a wide cone (which
+        // reaches beyond its length)
+        assertNeighbourSearchMatchesAllPairs(15, 20);
+        assertNeighbourSearchMatchesAllPairs(15, 360);
+        assertNeighbourSearchMatchesAllPairs(60, 360);
+    }
+
+    private void assertNeighbourSearchMatchesAllPairs(double angle, double windrange) throws IOException {
+        WindShadow shadow = createShadow(angle);
+        RandomSource random = new RandomSource(23);
+        int count = 400;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] windangle = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextDouble() * 400;
+            y[i] = random.nextDouble() * 400;
+            windangle[i] = Math.toRadians((random.nextDouble() - 0.5) * windrange);
+        }
+        shadow.update(x, y, windangle);
+        double tanangle = Math.tan(Math.toRadians(angle));
+        int shadowed = 0;
+        for (int i = 0; i < count; i++) {
+            double factor = 1;
+            double bend = 0;
+            for (int j = 0; j < count; j++) {
+                if (j != i) {
+                    double dx = x[i] - x[j];
+                    double dy = y[i] - y[j];
+                    double ax = -Math.sin(windangle[j]);
+                    double ay = -Math.cos(windangle[j]);
+                    double along = dx * ax + dy * ay;
+                    double across = dx * ay - dy * ax;
+                    if (along > 0 && along < 30 && Math.abs(across) < along * tanangle) {
+                        double weight = (1 - along / 30) * (1 - Math.abs(across) / (along * tanangle));
+                        factor *= 1 - 0.3 * weight;
+                        bend += Math.signum(across) * 5 * weight;
+                    }
+                }
+            }
+            if (factor != 1) {
+                shadowed++;
+            }
+            FlowVector wind = getWind(shadow, i, x[i], y[i]);
+            assertEquals(12 * factor, wind.getSpeed(), DELTA);
+            assertEquals(bend, wind.getDegrees(), DELTA);
+        }
+        assertTrue(shadowed > count / 10);
+    }
+
+    @Test
+    public void testWideCone() throws IOException {
+        System.out.println("wide cone");
+        WindShadow shadow = createShadow(60);
+        // 25m along and 32m across a 60 degree cone - further away than its length
+        shadow.update(new double[]{0, 32}, new double[]{0, -25}, new double[]{0, 0});
+        double weight = (1 - 25.0 / 30) * (1 - 32 / (25 * Math.tan(Math.toRadians(60))));
+        assertEquals(12 * (1 - 0.3 * weight), getWind(shadow, 1, 32, -25).getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testMalformed() {
+        System.out.println("malformed shadow");
+        assertThrows(IOException.class, () -> new WindShadow(Json.createObjectBuilder().add("angle", 90).build()));
+        assertThrows(IOException.class, () -> new WindShadow(Json.createObjectBuilder().add("speedloss", 1.5).build()));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.core;
+
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE0;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE90MINUS;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GradientTest {
+
+    private final static double DELTA = 0.0000001;
+    private final static int LOOKUPS = 1000000;
+    private final static int ROUNDS = 5;
+
+    private static final Area AREA = new Area(new Location(0, 0), 100, 100);
+    private static final double[] SPEEDS = new double[]{4, 8, 6};
+
+    @Test
+    public void testGetFlow() throws IOException {
+        System.out.println("getFlow");
+        Gradient gradient = new Gradient("north", SPEEDS);
+        assertNull(gradient.getFlow(new Location(50, 50)));
+        gradient.compile(AREA);
+        assertFlow(4, ANGLE0, gradient.getFlow(new Location(0, 30)));
+        assertFlow(6, ANGLE0, gradient.getFlow(new Location(25, 30)));
+        assertFlow(8, ANGLE0, gradient.getFlow(new Location(50, 30)));
+        assertFlow(6, ANGLE0, gradient.getFlow(new Location(100, 30)));
+        Gradient west = new Gradient("west", 10, 20);
+        west.compile(AREA);
+        assertFlow(15, ANGLE90MINUS, west.getFlow(new Location(0, 50)));
+    }
+
+    private void assertFlow(double speed, Angle angle, SpeedPolar flow) {
+        assertEquals(speed, flow.getSpeed(), DELTA);
+        assertEquals(angle, flow.getAngle());
+    }
+
+    @Test
+    public void testCompiledLookupTiming() throws IOException {
+        System.out.println("compiled lookup timing");
+        Gradient gradient = new Gradient("north", SPEEDS);
+        gradient.compile(AREA);
+        long compiled = Long.MAX_VALUE;
+        long uncompiled = Long.MAX_VALUE;
+        double sink = 0;
+        // the first round warms up both lookups; the best of the rounds is
+        // taken, to reduce the effect of other work on the timings
+        for (int round = 0; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                sink += gradient.getFlow(new Location(i % 100, 50)).getSpeed();
+            }
+            long compiledtime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                sink += new SpeedPolar(getUncompiledSpeed(i % 100), gradient.getMeanFlowDirection()).getSpeed();
+            }
+            long uncompiledtime = System.nanoTime() - start;
+            if (round > 0) {
+                compiled = Math.min(compiled, compiledtime);
+                uncompiled = Math.min(uncompiled, uncompiledtime);
+            }
+        }
+        System.out.println("compiled " + compiled / 1000 + " us, uncompiled " + uncompiled / 1000 + " us (" + sink + ")");
+        // a coarse check - allowing for the noise in timings on a shared machine
+        assertTrue(compiled <= uncompiled * 2);
+    }
+
+    // the speed interpolated directly from the gradient speeds, finding the
+    // position across the area on every lookup
+    private double getUncompiledSpeed(double x) {
+        double position = (x - AREA.getBottomleft().getX()) / AREA.getWidth() * (SPEEDS.length - 1);
+        position = Math.max(0, Math.min(SPEEDS.length - 1, position));
+        int i = Math.min((int) position, SPEEDS.length - 2);
+        return SPEEDS[i] + (SPEEDS[i + 1] - SPEEDS[i]) * (position - i);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class MeanAngleTest {
+
+    private final static double DELTA = 0.0000001;
+
+    @Test
+    public void testAngles() {
+        System.out.println("angles");
+        MeanAngle mean = new MeanAngle();
+        mean.add(new Angle(170));
+        mean.add(new Angle(-170));
+        assertEquals(180, Math.abs(mean.getMean().getDegrees()), DELTA);
+    }
+
+    @Test
+    public void testVectors() {
+        System.out.println("vectors");
+        MeanAngle mean = new MeanAngle();
+        // the magnitude of a vector does not count, and a zero vector has no
+        // direction, so is not counted
+        mean.add(10, 0, 1);
+        mean.add(0, 1, 1);
+        mean.add(0, 0, 1);
+        assertEquals(45, mean.getMean().getDegrees(), DELTA);
+        mean.add(0, 2, -1);
+        assertEquals(90, mean.getMean().getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testAddMean() {
+        System.out.println("add mean");
+        MeanAngle first = new MeanAngle();
+        first.add(new Angle(10));
+        MeanAngle second = new MeanAngle(first);
+        second.add(new Angle(30));
+        assertEquals(10, first.getMean().getDegrees(), DELTA);
+        first.add(second);
+        MeanAngle expected = new MeanAngle();
+        expected.add(new Angle(10));
+        expected.add(new Angle(10));
+        expected.add(new Angle(30));
+        assertEquals(expected.getMean().getDegrees(), first.getMean().getDegrees(), DELTA);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.core;
+
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class RandomSourceTest {
+
+    @Test
+    public void testRepeatable() {
+        System.out.println("repeatable");
+        RandomSource first = new RandomSource(1234);
+        RandomSource second = new RandomSource(1234);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextDouble(), second.nextDouble());
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        System.out.println("split");
+        RandomSource first = new RandomSource(1234).split();
+        RandomSource second = new RandomSource(1234).split();
+        assertEquals(first.getSeed(), second.getSeed());
+        for (int i = 0; i < 100; i++) {
+            double value = first.nextDouble();
+            assertTrue(value >= 0 && value < 1);
+            assertEquals(value, second.nextDouble());
+        }
+    }
+
+    @Test
+    public void testDerive() {
+        System.out.println("derive");
+        RandomSource source = new RandomSource(1234);
+        RandomSource first = source.derive(1);
+        source.nextDouble();
+        RandomSource second = source.derive(1);
+        assertEquals(first.getSeed(), second.getSeed());
+        assertNotEquals(first.getSeed(), source.derive(2).getSeed());
+        assertNotEquals(first.getSeed(), new RandomSource(1235).derive(1).getSeed());
+    }
+
+    @Test
+    public void testDeriveByName() {
+        System.out.println("derive by name");
+        RandomSource source = new RandomSource(1234);
+        RandomSource wind = source.derive("WIND");
+        source.split();
+        source.derive("WATER");
+        assertEquals(wind.getSeed(), source.derive("WIND").getSeed());
+        assertNotEquals(wind.getSeed(), source.derive("WATER").getSeed());
+        assertNotEquals(wind.getSeed(), new RandomSource(1235).derive("WIND").getSeed());
+    }
+
+    @Test
+    public void testSameSequenceAsSplittableRandom() {
+        System.out.println("same sequence as SplittableRandom");
+        RandomSource source = new RandomSource(1234);
+        SplittableRandom expected = new SplittableRandom(1234);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(expected.nextLong(), source.nextLong());
+            assertEquals(expected.nextDouble(), source.nextDouble());
+        }
+    }
+
+    @Test
+    public void testRestoreState() {
+        System.out.println("restore state");
+        RandomSource source = new RandomSource(1234);
+        source.nextDouble();
+        long state = source.getState();
+        double[] values = new double[10];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = source.nextDouble();
+        }
+        source.setState(state);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], source.nextDouble());
+        }
+    }
+}
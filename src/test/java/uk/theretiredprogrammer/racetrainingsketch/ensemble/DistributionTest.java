@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class DistributionTest {
+
+    private Distribution create(double... values) {
+        Distribution d = new Distribution();
+        for (double value : values) {
+            d.add(value);
+        }
+        return d;
+    }
+
+    @Test
+    public void testMeanAndPercentiles() {
+        System.out.println("mean and percentiles");
+        Distribution d = create(50, 10, 40, 20, 30);
+        assertEquals(5, d.getCount());
+        assertEquals(30, d.getMean(), 1E-9);
+        assertEquals(10, d.getMin(), 1E-9);
+        assertEquals(50, d.getMax(), 1E-9);
+        assertEquals(30, d.getPercentile(50), 1E-9);
+        assertEquals(14, d.getPercentile(10), 1E-9);
+    }
+
+    @Test
+    public void testHistogram() {
+        System.out.println("histogram");
+        Distribution d = create(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertArrayEquals(new int[]{3, 2, 3, 3}, d.getHistogram(4));
+    }
+
+    @Test
+    public void testEmpty() {
+        System.out.println("empty");
+        Distribution d = new Distribution();
+        assertEquals(0, d.getCount());
+        assertEquals(Double.NaN, d.getMean());
+        assertArrayEquals(new int[]{0, 0}, d.getHistogram(2));
+    }
+}
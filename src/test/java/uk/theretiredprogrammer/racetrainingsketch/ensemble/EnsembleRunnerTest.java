@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ensemble;
+
+import java.io.IOException;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class EnsembleRunnerTest {
+
+    private JsonObject read(String resourcename) throws IOException {
+        try ( JsonReader rdr = Json.createReader(this.getClass().getResourceAsStream(resourcename))) {
+            return rdr.readObject();
+        }
+    }
+
+    @Test
+    public void testEnsemble() throws IOException {
+        System.out.println("ensemble");
+        EnsembleResults results = new EnsembleRunner(read("/windwardleeward-shifts.json"), 3600).run(40, 1234);
+        assertEquals(40, results.runs);
+        assertEquals(3, results.getBoatNames().size());
+        double totalwins = 0;
+        for (String name : results.getBoatNames()) {
+            EnsembleResults.BoatResults boatresults = results.getBoatResults(name);
+            assertTrue(boatresults.finishtimes.getCount() > 0);
+            assertEquals(3, boatresults.legtimes.size());
+            assertEquals(boatresults.finishtimes.getCount(), boatresults.legtimes.get(2).getCount());
+            assertTrue(boatresults.finishtimes.getMin() <= boatresults.finishtimes.getPercentile(50));
+            assertTrue(boatresults.finishtimes.getPercentile(50) <= boatresults.finishtimes.getMax());
+            assertTrue(boatresults.distances.getMean() > 1200);
+            totalwins += results.getWinPercentage(name);
+        }
+        assertTrue(totalwins >= 100);
+    }
+
+    @Test
+    public void testEnsembleIsRepeatable() throws IOException {
+        System.out.println("ensemble is repeatable");
+        EnsembleRunner runner = new EnsembleRunner(read("/windwardleeward-shifts.json"), 3600);
+        EnsembleResults first = runner.run(20, 99);
+        EnsembleResults second = runner.run(20, 99);
+        for (String name : first.getBoatNames()) {
+            assertEquals(first.getBoatResults(name).finishtimes.getMean(),
+                    second.getBoatResults(name).finishtimes.getMean());
+            assertEquals(first.getBoatResults(name).distances.getMean(),
+                    second.getBoatResults(name).distances.getMean());
+            assertEquals(first.getWinPercentage(name), second.getWinPercentage(name));
+        }
+    }
+}
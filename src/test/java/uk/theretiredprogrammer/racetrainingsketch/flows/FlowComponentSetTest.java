@@ -16,11 +16,18 @@
 package uk.theretiredprogrammer.racetrainingsketch.flows;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.json.Json;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import org.junit.jupiter.api.Test;
 import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
 import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE0;
 import uk.theretiredprogrammer.racetrainingsketch.core.Location;
 import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
 
 /**
  *
@@ -43,4 +50,87 @@ public class FlowComponentSetTest extends FlowComponentTest {
         assertFlowAt(new Location(80, 60), new SpeedPolar(12, new Angle(-15)));
         assertMeanFlowAngle(new Angle(-0.2270468));
     }
+
+    @Test
+    public void testChangeMovesComponent() throws IOException {
+        System.out.println("change moves component");
+        initialiseFlow("/windflowset.json");
+        FlowComponentSet flowset = getController().windflow.getFlowComponentSet();
+        assertEquals(12, flowset.getFlow(new Location(70, 50)).getSpeed());
+        flowset.change(Json.createObjectBuilder()
+                .add("location", Json.createArrayBuilder().add(10).add(10))
+                .build(), 2);
+        assertEquals(8, flowset.getFlow(new Location(70, 50)).getSpeed());
+        assertEquals(12, flowset.getFlow(new Location(25, 25)).getSpeed());
+        assertEquals(4, flowset.getFlow(new Location(5, 5)).getSpeed());
+    }
+
+    @Test
+    public void testIndexMatchesScan() throws IOException {
+        System.out.println("index matches scan");
+        initialiseFlow("/windflowset.json");
+        Controller controller = getController();
+        Random random = new Random(42);
+        List<FlowComponent> components = new ArrayList<>();
+        FlowComponentSet flowset = new FlowComponentSet();
+        for (int i = 0; i < 50; i++) {
+            FlowComponent component = FlowComponentFactory.createflowelement(() -> controller, Json.createObjectBuilder()
+                    .add("type", "constantflow")
+                    .add("speed", i)
+                    .add("from", 0)
+                    .add("zlevel", i == 0 ? 0 : 1 + random.nextInt(5))
+                    .add("location", Json.createArrayBuilder().add(i == 0 ? 0 : random.nextInt(90)).add(i == 0 ? 0 : random.nextInt(90)))
+                    .add("width", i == 0 ? 100 : 1 + random.nextInt(30))
+                    .add("height", i == 0 ? 100 : 1 + random.nextInt(30))
+                    .build());
+            components.add(component);
+            flowset.add(component);
+        }
+        for (double x = 0; x <= 100; x += 0.5) {
+            for (double y = 0; y <= 100; y += 0.5) {
+                Location pos = new Location(x, y);
+                FlowComponent expected = null;
+                for (FlowComponent component : components) {
+                    if (component.getArea().isWithinArea(pos)
+                            && (expected == null || component.getZlevel() > expected.getZlevel())) {
+                        expected = component;
+                    }
+                }
+                assertEquals(expected.getFlow(pos).getSpeed(), flowset.getFlow(pos).getSpeed());
+            }
+        }
+    }
+
+    @Test
+    public void testZlevelRules() throws IOException {
+        System.out.println("zlevel rules");
+        initialiseFlow("/windflowset.json");
+        Controller controller = getController();
+        FlowComponentSet flowset = new FlowComponentSet();
+        flowset.add(createComponent(controller, 4, 0, 0, 100));
+        // a negative zlevel is never used
+        flowset.add(createComponent(controller, 9, -1, 0, 100));
+        // the first defined wins at the same zlevel
+        flowset.add(createComponent(controller, 5, 1, 20, 40));
+        flowset.add(createComponent(controller, 6, 1, 30, 40));
+        assertEquals(4, flowset.getFlow(new Location(10, 10)).getSpeed());
+        assertEquals(5, flowset.getFlow(new Location(25, 25)).getSpeed());
+        assertEquals(5, flowset.getFlow(new Location(35, 35)).getSpeed());
+        assertEquals(6, flowset.getFlow(new Location(65, 65)).getSpeed());
+        FlowComponentSet negativeonly = new FlowComponentSet();
+        negativeonly.add(createComponent(controller, 9, -1, 0, 100));
+        assertThrows(IOException.class, () -> negativeonly.getFlow(new Location(50, 50)));
+    }
+
+    private FlowComponent createComponent(Controller controller, double speed, int zlevel, int location, int size) throws IOException {
+        return FlowComponentFactory.createflowelement(() -> controller, Json.createObjectBuilder()
+                .add("type", "constantflow")
+                .add("speed", speed)
+                .add("from", 0)
+                .add("zlevel", zlevel)
+                .add("location", Json.createArrayBuilder().add(location).add(location))
+                .add("width", size)
+                .add("height", size)
+                .build());
+    }
 }
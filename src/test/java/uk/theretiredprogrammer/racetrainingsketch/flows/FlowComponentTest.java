@@ -34,6 +34,10 @@ public abstract class FlowComponentTest {
         controller = new Controller(filename, (s) -> requestpaint(s));
     }
 
+    Controller getController() {
+        return controller;
+    }
+
     private void requestpaint(String s) {
         fail("BAD - should not be calling controller repaint");
     }
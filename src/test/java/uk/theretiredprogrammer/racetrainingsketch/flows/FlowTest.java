@@ -0,0 +1,381 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.json.Json;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+import uk.theretiredprogrammer.racetrainingsketch.playback.FlowFrame;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FlowTest {
+
+    private final static double DELTA = 0.0000001;
+
+    private void requestpaint(String s) {
+    }
+
+    @Test
+    public void testInterpolation() throws IOException {
+        System.out.println("interpolation");
+        Controller controller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        // between 4 knots from 0 (at 49,50) and 8 knots from 10 (at 50,50)
+        double u = 0.5 * 8 * Math.sin(Math.toRadians(10));
+        double v = 0.5 * (4 + 8 * Math.cos(Math.toRadians(10)));
+        SpeedPolar flow = controller.windflow.getFlow(new Location(49.5, 50));
+        assertEquals(Math.sqrt(u * u + v * v), flow.getSpeed(), DELTA);
+        assertEquals(Math.toDegrees(Math.atan2(u, v)), flow.getAngle().getDegrees(), DELTA);
+        // outside the sailing area takes the flow at the edge
+        assertEquals(4, controller.windflow.getFlow(new Location(-10, 200)).getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testGetFlowIntoHolder() throws IOException {
+        System.out.println("get flow into holder");
+        Controller controller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        FlowVector holder = new FlowVector();
+        for (double x = 0; x <= 100; x += 7.3) {
+            for (double y = 0; y <= 100; y += 3.7) {
+                SpeedPolar flow = controller.windflow.getFlow(new Location(x, y));
+                controller.windflow.getFlow(x, y, holder);
+                assertEquals(flow.getSpeed(), holder.getSpeed(), DELTA);
+                assertEquals(flow.getAngle().getDegrees(), holder.getDegrees(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testGetFlowIntoHolderWithShifts() throws IOException {
+        System.out.println("get flow into holder with shifts");
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        controller.runToFinish(300);
+        Flow windflow = controller.windflow;
+        FlowFrame frame = windflow.getFrame();
+        FlowVector holder = new FlowVector();
+        for (double x = 0; x <= 1000; x += 73) {
+            for (double y = 0; y <= 1000; y += 37) {
+                SpeedPolar flow = windflow.getFlow(new Location(x, y));
+                assertEquals(flow.getAngle().getDegrees(), windflow.getFlowDegrees(x, y, holder), DELTA);
+                SpeedPolar frameflow = windflow.getFlow(new Location(x, y), frame);
+                windflow.getFlow(x, y, frame, holder);
+                assertEquals(frameflow.getSpeed(), holder.getSpeed(), DELTA);
+                assertEquals(frameflow.getAngle().getDegrees(), holder.getDegrees(), DELTA);
+                assertEquals(flow.getAngle().getDegrees(), holder.getDegrees(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testShiftRotation() throws IOException {
+        System.out.println("shift rotation");
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        for (int time = 60; time <= 600; time += 60) {
+            controller.runToFinish(time);
+            SpeedPolar flow = controller.windflow.getFlow(new Location(500, 500));
+            assertEquals(12, flow.getSpeed(), DELTA);
+            assertEquals(controller.windflow.getFrame().shift.getDegrees(), flow.getAngle().getDegrees(), DELTA);
+        }
+    }
+
+    @Test
+    public void testResolution() throws IOException {
+        System.out.println("resolution");
+        Controller controller = new Controller("/windflowset-resolution.json", (s) -> requestpaint(s));
+        assertEquals(21 * 21, controller.windflow.getGridSize());
+        assertEquals(101 * 101, new Controller("/windflowset.json", (s) -> requestpaint(s)).windflow.getGridSize());
+    }
+
+    @Test
+    public void testAdaptiveGrid() throws IOException {
+        System.out.println("adaptive grid");
+        Controller controller = new Controller("/windflowset-adaptive.json", (s) -> requestpaint(s));
+        assertTrue(controller.windflow.getGridSize() < 101 * 101 / 2);
+        FlowComponentSet flowset = controller.windflow.getFlowComponentSet();
+        // all component edges are on multiples of 5 metres
+        for (double x = 2.5; x < 100; x += 5) {
+            for (double y = 2.5; y < 100; y += 5) {
+                SpeedPolar expected = flowset.getFlow(new Location(x, y));
+                SpeedPolar flow = controller.windflow.getFlow(new Location(x, y));
+                assertEquals(expected.getSpeed(), flow.getSpeed(), DELTA);
+                assertEquals(expected.getAngle().getDegrees(), flow.getAngle().getDegrees(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testMeanFlowAngleSameForGridTypes() throws IOException {
+        System.out.println("mean flow angle same for grid types");
+        Controller controller = new Controller("/windflowset-adaptive.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        double adaptivemean = windflow.getMeanFlowAngle().getDegrees();
+        windflow.change(Json.createObjectBuilder().add("adaptivegrid", false).build());
+        assertEquals(windflow.getMeanFlowAngle().getDegrees(), adaptivemean, DELTA);
+    }
+
+    @Test
+    public void testGridMatchesComponents() throws IOException {
+        System.out.println("grid matches components");
+        Controller controller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        FlowComponentSet flowset = controller.windflow.getFlowComponentSet();
+        FlowVector holder = new FlowVector();
+        for (int x = 0; x <= 100; x++) {
+            for (int y = 0; y <= 100; y++) {
+                SpeedPolar expected = flowset.getFlow(new Location(x, y));
+                controller.windflow.getFlow(x, y, holder);
+                assertEquals(expected.getSpeed(), holder.getSpeed(), DELTA);
+                assertEquals(expected.getAngle().getDegrees(), holder.getDegrees(), DELTA);
+            }
+        }
+        // the mean is independent of the threads used to build the grid
+        Angle mean = controller.windflow.getMeanFlowAngle();
+        for (int i = 0; i < 5; i++) {
+            controller.windflow.setFlows();
+            assertEquals(mean, controller.windflow.getMeanFlowAngle());
+        }
+    }
+
+    @Test
+    public void testMeanFlowAngleIgnoresCalm() throws IOException {
+        System.out.println("mean flow angle ignores calm");
+        Controller controller = new Controller("/windflowset-calm.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        // calm points have no direction, so only the flow from 20 counts
+        assertEquals(0, windflow.getFlow(new Location(25, 50)).getSpeed(), DELTA);
+        assertEquals(20, windflow.getMeanFlowAngle().getDegrees(), DELTA);
+        windflow.change(Json.createObjectBuilder()
+                .add("adaptivegrid", true)
+                .add("resolution", 1)
+                .build());
+        assertEquals(0, windflow.getFlow(new Location(25, 50)).getSpeed(), DELTA);
+        assertEquals(20, windflow.getMeanFlowAngle().getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testUpdateFlows() throws IOException {
+        System.out.println("update flows");
+        Controller controller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        FlowComponentSet flowset = controller.windflow.getFlowComponentSet();
+        flowset.change(Json.createObjectBuilder()
+                .add("from", 30)
+                .add("location", Json.createArrayBuilder().add(10).add(20))
+                .build(), 2);
+        controller.windflow.updateFlows();
+        FlowVector holder = new FlowVector();
+        for (int x = 0; x <= 100; x++) {
+            for (int y = 0; y <= 100; y++) {
+                SpeedPolar expected = flowset.getFlow(new Location(x, y));
+                controller.windflow.getFlow(x, y, holder);
+                assertEquals(expected.getSpeed(), holder.getSpeed(), DELTA);
+                assertEquals(expected.getAngle().getDegrees(), holder.getDegrees(), DELTA);
+            }
+        }
+        Angle updatedmean = controller.windflow.getMeanFlowAngle();
+        controller.windflow.setFlows();
+        assertEquals(controller.windflow.getMeanFlowAngle().getDegrees(), updatedmean.getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testUpdateFlowsKeepsFrames() throws IOException {
+        System.out.println("update flows keeps frames");
+        Controller controller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        FlowFrame frame = windflow.getFrame();
+        FlowVector before = new FlowVector();
+        windflow.getFlow(65, 45, before);
+        windflow.getFlowComponentSet().change(Json.createObjectBuilder()
+                .add("speed", 6)
+                .add("from", 45)
+                .build(), 2);
+        windflow.updateFlows();
+        FlowVector holder = new FlowVector();
+        // the frame taken before the update still has the previous flows
+        windflow.getFlow(65, 45, frame, holder);
+        assertEquals(before.u, holder.u, DELTA);
+        assertEquals(before.v, holder.v, DELTA);
+        // and the current flows are those of a rebuilt grid
+        windflow.getFlow(65, 45, holder);
+        assertEquals(6, holder.getSpeed(), DELTA);
+        assertEquals(45, holder.getDegrees(), DELTA);
+        assertNotSame(frame.blend, windflow.getFrame().blend);
+        FlowVector updated = new FlowVector();
+        FlowVector rebuilt = new FlowVector();
+        Angle updatedmean = windflow.getMeanFlowAngle();
+        Controller rebuiltcontroller = new Controller("/windflowset.json", (s) -> requestpaint(s));
+        rebuiltcontroller.windflow.getFlowComponentSet().change(Json.createObjectBuilder()
+                .add("speed", 6)
+                .add("from", 45)
+                .build(), 2);
+        rebuiltcontroller.windflow.setFlows();
+        for (int x = 0; x <= 100; x += 5) {
+            for (int y = 0; y <= 100; y += 5) {
+                windflow.getFlow(x, y, updated);
+                rebuiltcontroller.windflow.getFlow(x, y, rebuilt);
+                assertEquals(rebuilt.u, updated.u, DELTA);
+                assertEquals(rebuilt.v, updated.v, DELTA);
+            }
+        }
+        assertEquals(rebuiltcontroller.windflow.getMeanFlowAngle().getDegrees(), updatedmean.getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testKeyframes() throws IOException {
+        System.out.println("keyframes");
+        Controller controller = new Controller("/windflowset-keyframes.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        Location pos = new Location(10, 10);
+        assertEquals(4, windflow.getFlow(pos).getSpeed(), DELTA);
+        assertFalse(windflow.isSteady());
+        assertEquals(0, windflow.getSteadyTime(0));
+        // halfway between 4 knots and 8 knots, both from 0
+        windflow.setTime(50);
+        FlowFrame frame = windflow.getFrame();
+        assertEquals(6, windflow.getFlow(pos).getSpeed(), DELTA);
+        assertEquals(0, windflow.getFlow(pos).getAngle().getDegrees(), DELTA);
+        // halfway between 8 knots from 0 and 4 knots from 90
+        windflow.setTime(150);
+        SpeedPolar flow = windflow.getFlow(pos);
+        assertEquals(Math.sqrt(2 * 2 + 4 * 4), flow.getSpeed(), DELTA);
+        assertEquals(Math.toDegrees(Math.atan2(2, 4)), flow.getAngle().getDegrees(), DELTA);
+        // a frame keeps the flow as it was
+        assertEquals(6, windflow.getFlow(pos, frame).getSpeed(), DELTA);
+        // after the last keyframe the flow holds
+        windflow.setTime(500);
+        assertEquals(4, windflow.getFlow(pos).getSpeed(), DELTA);
+        assertEquals(90, windflow.getFlow(pos).getAngle().getDegrees(), DELTA);
+        assertEquals(Double.MAX_VALUE, windflow.getSteadyTime(500));
+        // going back rebuilds the keyframe grids
+        windflow.setTime(25);
+        assertEquals(5, windflow.getFlow(pos).getSpeed(), DELTA);
+        // the flow components are unchanged by the keyframes
+        assertEquals(4, windflow.getFlowComponentSet().getFlow(pos).getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testGustCells() throws IOException {
+        System.out.println("gust cells");
+        Controller controller = new Controller("/windwardleeward-gusts.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        assertFalse(windflow.isSteady());
+        assertEquals(0, windflow.getSteadyTime(0));
+        FlowFrame frame = windflow.getFrame();
+        assertEquals(200, frame.gusts.getCount());
+        double[] speeds = new double[100];
+        int gusts = 0;
+        int lulls = 0;
+        for (int i = 0; i < speeds.length; i++) {
+            speeds[i] = windflow.getFlow(new Location(50 + i * 9, 500)).getSpeed();
+            gusts += speeds[i] > 12 + DELTA ? 1 : 0;
+            lulls += speeds[i] < 12 - DELTA ? 1 : 0;
+        }
+        assertTrue(gusts > 0);
+        assertTrue(lulls > 0);
+        // the cells move on, but a frame keeps the flow as it was
+        controller.runToFinish(60);
+        int changed = 0;
+        for (int i = 0; i < speeds.length; i++) {
+            Location pos = new Location(50 + i * 9, 500);
+            assertEquals(speeds[i], windflow.getFlow(pos, frame).getSpeed(), DELTA);
+            changed += Math.abs(windflow.getFlow(pos).getSpeed() - speeds[i]) > DELTA ? 1 : 0;
+        }
+        assertTrue(changed > 0);
+    }
+
+    @Test
+    public void testTides() throws IOException {
+        System.out.println("tides");
+        Controller controller = new Controller("/windwardleeward-tides.json", (s) -> requestpaint(s));
+        Flow waterflow = controller.waterflow;
+        Location pos = new Location(500, 500);
+        // high water is at 600 seconds, with 300 second tidal hours - so the
+        // simulation starts at HW-2
+        assertEquals(0.8, waterflow.getFlow(pos).getSpeed(), DELTA);
+        assertEquals(90, waterflow.getFlow(pos).getAngle().getDegrees(), DELTA);
+        assertEquals(0, waterflow.getSteadyTime(0));
+        waterflow.setTime(150);
+        assertEquals(0.9, waterflow.getFlow(pos).getSpeed(), DELTA);
+        waterflow.setTime(600);
+        assertEquals(1.2, waterflow.getFlow(pos).getSpeed(), DELTA);
+        waterflow.setTime(2000);
+        assertEquals(2 + 0.2 * 2 / 3, waterflow.getFlow(pos).getSpeed(), DELTA);
+        // after HW+6 the flow holds
+        waterflow.setTime(3000);
+        assertEquals(2.4, waterflow.getFlow(pos).getSpeed(), DELTA);
+        assertEquals(Double.MAX_VALUE, waterflow.getSteadyTime(3000));
+        // going back
+        waterflow.setTime(0);
+        assertEquals(0.8, waterflow.getFlow(pos).getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testArrowLayer() throws IOException {
+        System.out.println("arrow layer");
+        Controller controller = new Controller("/windwardleeward-showflow.json", (s) -> requestpaint(s));
+        Flow windflow = controller.windflow;
+        BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2D = image.createGraphics();
+        g2D.translate(0, 1000);
+        g2D.scale(1, -1);
+        FlowFrame frame = windflow.getFrame();
+        windflow.draw(g2D, 1, frame);
+        BufferedImage layer = windflow.getArrowLayer();
+        assertTrue(layer != null);
+        assertTrue(hasPixels(image));
+        // the layer is reused for the same flow
+        windflow.draw(g2D, 1, frame);
+        assertSame(layer, windflow.getArrowLayer());
+        windflow.draw(g2D, 1, windflow.getFrame());
+        assertSame(layer, windflow.getArrowLayer());
+        // but redrawn when the shift changes
+        Angle shift = frame.shift;
+        int time = 0;
+        while (windflow.getFrame().shift.getDegrees() == shift.getDegrees()) {
+            time += 10;
+            assertTrue(time < 3600, "no shift");
+            controller.runToFinish(time);
+        }
+        windflow.draw(g2D, 1, windflow.getFrame());
+        assertNotSame(layer, windflow.getArrowLayer());
+        // the frame is still drawn as it was
+        layer = windflow.getArrowLayer();
+        windflow.draw(g2D, 1, frame);
+        assertNotSame(layer, windflow.getArrowLayer());
+        g2D.dispose();
+    }
+
+    private boolean hasPixels(BufferedImage image) {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
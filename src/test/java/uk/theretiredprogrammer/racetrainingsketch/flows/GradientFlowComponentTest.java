@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 richard.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import javax.json.Json;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.Angle;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE0;
+import static uk.theretiredprogrammer.racetrainingsketch.core.Angle.ANGLE90MINUS;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GradientFlowComponentTest extends FlowComponentTest {
+
+    @Test
+    public void testGetGradientFlow() throws IOException {
+        System.out.println("getGradientFlow");
+        initialiseFlow("/gradientwindflow.json");
+        assertFlowAt(new Location(0, 0), new SpeedPolar(4, ANGLE0));
+        assertFlowAt(new Location(25, 100), new SpeedPolar(6, ANGLE0));
+        assertFlowAt(new Location(50, 50), new SpeedPolar(8, ANGLE0));
+        assertFlowAt(new Location(75, 10), new SpeedPolar(7, ANGLE0));
+        assertFlowAt(new Location(100, 100), new SpeedPolar(6, ANGLE0));
+        assertFlowAt(new Location(10.5, 80), new SpeedPolar(4.84, ANGLE0));
+        assertMeanFlowAngle(ANGLE0);
+    }
+
+    @Test
+    public void testGetGradientFlow2() throws IOException {
+        System.out.println("getGradientFlow2");
+        initialiseFlow("/gradientwindflow2.json");
+        assertFlowAt(new Location(10, 50), new SpeedPolar(4, ANGLE0));
+        assertFlowAt(new Location(30, 40), new SpeedPolar(10, ANGLE90MINUS));
+        assertFlowAt(new Location(50, 60), new SpeedPolar(15, ANGLE90MINUS));
+        assertFlowAt(new Location(70, 70), new SpeedPolar(17.5, ANGLE90MINUS));
+        assertFlowAt(new Location(80, 80), new SpeedPolar(20, ANGLE90MINUS));
+    }
+
+    @Test
+    public void testChange() throws IOException {
+        System.out.println("change");
+        initialiseFlow("/gradientwindflow.json");
+        FlowComponentSet flowset = getController().windflow.getFlowComponentSet();
+        flowset.change(Json.createObjectBuilder()
+                .add("gradient", Json.createArrayBuilder().add("south").add(10).add(2))
+                .build());
+        getController().windflow.updateFlows();
+        assertFlowAt(new Location(0, 50), new SpeedPolar(10, new Angle(180)));
+        assertFlowAt(new Location(25, 50), new SpeedPolar(8, new Angle(180)));
+        assertFlowAt(new Location(100, 50), new SpeedPolar(2, new Angle(180)));
+    }
+
+    @Test
+    public void testVectorMatchesFlow() throws IOException {
+        System.out.println("vector matches flow");
+        initialiseFlow("/gradientwindflow2.json");
+        FlowComponentSet flowset = getController().windflow.getFlowComponentSet();
+        FlowVector vector = new FlowVector();
+        for (double x = 0; x <= 100; x += 3.3) {
+            for (double y = 0; y <= 100; y += 2.9) {
+                SpeedPolar flow = flowset.getFlow(new Location(x, y));
+                flowset.getFlow(x, y, vector);
+                assertEquals(flow.getSpeed(), vector.getSpeed(), DELTA);
+                assertEquals(flow.getAngle().getDegrees(), vector.getDegrees(), DELTA);
+            }
+        }
+    }
+}
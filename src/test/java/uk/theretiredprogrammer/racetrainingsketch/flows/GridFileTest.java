@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.SpeedPolar;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GridFileTest {
+
+    private final static double DELTA = 0.00001;
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("gridfiletest");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try ( Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // two slices over the sailing area: 10 knots from 0 (20 knots at the
+    // centre), then 8 knots from 90
+    private Path writeCsv(String name, boolean complete) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("slice,x,y,speed,from");
+        for (int slice = 0; slice < 2; slice++) {
+            for (int x = 0; x <= 100; x += 50) {
+                for (int y = 0; y <= 100; y += 50) {
+                    if (complete || x != 100 || y != 100) {
+                        lines.add(slice == 0
+                                ? slice + "," + x + "," + y + "," + (x == 50 && y == 50 ? 20 : 10) + ",0"
+                                : slice + "," + x + "," + y + ",8,90");
+                    }
+                }
+            }
+        }
+        Path path = directory.resolve(name);
+        Files.write(path, lines, StandardCharsets.UTF_8);
+        return path;
+    }
+
+    @Test
+    public void testConvertAndRead() throws IOException {
+        System.out.println("convert and read");
+        GridFile gridfile = GridFile.open(writeCsv("venue.csv", true));
+        assertTrue(Files.isRegularFile(directory.resolve("venue.rtg")));
+        assertEquals(2, gridfile.getSlices());
+        FlowVector flow = new FlowVector();
+        gridfile.getFlow(0, 50, 50, flow);
+        assertEquals(20, flow.getSpeed(), DELTA);
+        assertEquals(0, flow.getDegrees(), DELTA);
+        gridfile.getFlow(0, 25, 50, flow);
+        assertEquals(15, flow.getSpeed(), DELTA);
+        gridfile.getFlow(0, 25, 25, flow);
+        assertEquals(12.5, flow.getSpeed(), DELTA);
+        // outside the grid takes the flow at the edge
+        gridfile.getFlow(0, -10, 50, flow);
+        assertEquals(10, flow.getSpeed(), DELTA);
+        gridfile.getFlow(1, 10, 90, flow);
+        assertEquals(8, flow.getSpeed(), DELTA);
+        assertEquals(90, flow.getDegrees(), DELTA);
+        // the open file is shared, and the grid file can be used directly
+        assertSame(gridfile, GridFile.open(directory.resolve("venue.csv")));
+        assertSame(gridfile, GridFile.open(directory.resolve("venue.rtg")));
+    }
+
+    @Test
+    public void testIncompleteGrid() throws IOException {
+        System.out.println("incomplete grid");
+        Path path = writeCsv("incomplete.csv", false);
+        assertThrows(IOException.class, () -> GridFile.open(path));
+        assertThrows(IOException.class, () -> GridFile.open(directory.resolve("missing.csv")));
+    }
+
+    private JsonObject getDefinition(String file) throws IOException {
+        try ( InputStream is = this.getClass().getResourceAsStream("/gridfilewindflow.json")) {
+            String definition = new String(is.readAllBytes(), StandardCharsets.UTF_8).replace("GRIDFILE", file);
+            try ( JsonReader rdr = Json.createReader(new StringReader(definition))) {
+                return rdr.readObject();
+            }
+        }
+    }
+
+    @Test
+    public void testGridFileFlowComponent() throws IOException {
+        System.out.println("gridfile flow component");
+        writeCsv("venue.csv", true);
+        // a relative file is relative to the directory of the definition file
+        Controller controller = new Controller(getDefinition("venue.csv"), 1, directory);
+        SpeedPolar flow = controller.windflow.getFlow(new Location(25, 50));
+        assertEquals(15, flow.getSpeed(), DELTA);
+        assertEquals(0, flow.getAngle().getDegrees(), DELTA);
+        // the second slice is used in the keyframe
+        controller.windflow.setTime(100);
+        flow = controller.windflow.getFlow(new Location(25, 50));
+        assertEquals(8, flow.getSpeed(), DELTA);
+        assertEquals(90, flow.getAngle().getDegrees(), DELTA);
+        String absolute = directory.resolve("venue.csv").toAbsolutePath().toString().replace('\\', '/');
+        controller = new Controller(getDefinition(absolute), 1);
+        assertEquals(15, controller.windflow.getFlow(new Location(25, 50)).getSpeed(), DELTA);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.flows;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.core.Area;
+import uk.theretiredprogrammer.racetrainingsketch.core.Location;
+import uk.theretiredprogrammer.racetrainingsketch.core.RandomSource;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class GustFieldTest {
+
+    private final static double DELTA = 0.0000001;
+    private final static Area AREA = new Area(new Location(0, 0), 1000, 1000);
+
+    private GustField createField(double x, double y, double speedchange, double anglechange) {
+        return new GustField(AREA, 1, new double[]{x}, new double[]{y}, new double[]{0}, new double[]{-1},
+                new double[]{speedchange}, new double[]{anglechange}, 80, 40);
+    }
+
+    @Test
+    public void testSingleCell() {
+        System.out.println("single cell");
+        GustField field = createField(500, 500, 4, 0);
+        FlowVector flow = new FlowVector();
+        flow.set(0, 12);
+        field.apply(500, 500, flow);
+        assertEquals(16, flow.getSpeed(), DELTA);
+        assertEquals(0, flow.getDegrees(), DELTA);
+        // half way to the end of the cell
+        flow.set(0, 12);
+        field.apply(500, 460, flow);
+        assertEquals(12 + 4 * 0.75 * 0.75, flow.getSpeed(), DELTA);
+        // outside the cell
+        flow.set(0, 12);
+        field.apply(541, 500, flow);
+        assertEquals(12, flow.getSpeed(), DELTA);
+        // a lull cannot reverse the flow
+        field = createField(500, 500, -20, 10);
+        flow.set(0, 12);
+        field.apply(500, 500, flow);
+        assertEquals(0, flow.getSpeed(), DELTA);
+    }
+
+    @Test
+    public void testDirectionChange() {
+        System.out.println("direction change");
+        GustField field = createField(500, 500, 0, 10);
+        FlowVector flow = new FlowVector();
+        flow.set(0, 12);
+        field.apply(500, 500, flow);
+        assertEquals(12, flow.getSpeed(), DELTA);
+        assertEquals(10, flow.getDegrees(), DELTA);
+    }
+
+    @Test
+    public void testHashMatchesScan() {
+        System.out.println("hash matches scan");
+        RandomSource random = new RandomSource(1234);
+        int count = 500;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] alongx = new double[count];
+        double[] alongy = new double[count];
+        double[] speedchange = new double[count];
+        double[] anglechange = new double[count];
+        for (int i = 0; i < count; i++) {
+            // some cells are outside the area
+            x[i] = random.nextDouble() * 1200 - 100;
+            y[i] = random.nextDouble() * 1200 - 100;
+            double radians = random.nextDouble() * 2 * Math.PI;
+            alongx[i] = Math.sin(radians);
+            alongy[i] = Math.cos(radians);
+            speedchange[i] = random.nextDouble() * 8 - 4;
+            anglechange[i] = random.nextDouble() * 20 - 10;
+        }
+        GustField field = new GustField(AREA, count, x, y, alongx, alongy, speedchange, anglechange, 30, 20);
+        FlowVector flow = new FlowVector();
+        for (double px = -50; px <= 1050; px += 7.7) {
+            for (double py = -50; py <= 1050; py += 9.1) {
+                double dspeed = 0;
+                double dangle = 0;
+                for (int i = 0; i < count; i++) {
+                    double along = (px - x[i]) * alongx[i] + (py - y[i]) * alongy[i];
+                    double across = (px - x[i]) * alongy[i] - (py - y[i]) * alongx[i];
+                    double r2 = along * along / (30 * 30) + across * across / (20 * 20);
+                    if (r2 < 1) {
+                        dspeed += speedchange[i] * (1 - r2) * (1 - r2);
+                        dangle += anglechange[i] * (1 - r2) * (1 - r2);
+                    }
+                }
+                flow.set(0, 12);
+                field.apply(px, py, flow);
+                assertEquals(Math.max(0, 12 + dspeed), flow.getSpeed(), 1E-9);
+                assertEquals(dangle, flow.getDegrees(), 1E-9);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.playback;
+
+import java.util.Collections;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class FrameBufferTest {
+
+    private Frame frame(double time) {
+        return new Frame(time, null, null, Collections.emptyMap());
+    }
+
+    private FrameBuffer create(int capacity, int frames) {
+        FrameBuffer buffer = new FrameBuffer(capacity);
+        for (int time = 0; time < frames; time++) {
+            buffer.add(frame(time));
+        }
+        return buffer;
+    }
+
+    @Test
+    public void testAdd() {
+        System.out.println("add");
+        FrameBuffer buffer = create(10, 5);
+        assertEquals(5, buffer.size());
+        assertEquals(0, buffer.getOldest().get().time);
+        assertEquals(4, buffer.getNewest().get().time);
+    }
+
+    @Test
+    public void testOverwriteOldest() {
+        System.out.println("overwrite oldest");
+        FrameBuffer buffer = create(10, 25);
+        assertEquals(10, buffer.size());
+        assertEquals(15, buffer.getOldest().get().time);
+        assertEquals(24, buffer.getNewest().get().time);
+    }
+
+    @Test
+    public void testGetFrame() {
+        System.out.println("get frame");
+        FrameBuffer buffer = create(10, 25);
+        assertEquals(20, buffer.getFrame(20).get().time);
+        assertEquals(20, buffer.getFrame(20.5).get().time);
+        assertEquals(24, buffer.getFrame(100).get().time);
+        assertFalse(buffer.getFrame(14.5).isPresent());
+    }
+
+    @Test
+    public void testClear() {
+        System.out.println("clear");
+        FrameBuffer buffer = create(10, 25);
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertFalse(buffer.getNewest().isPresent());
+        buffer.add(frame(30));
+        assertEquals(30, buffer.getOldest().get().time);
+    }
+
+    @Test
+    public void testAwaitRoom() throws InterruptedException {
+        System.out.println("await room");
+        FrameBuffer buffer = create(10, 5);
+        buffer.setPlayhead(0);
+        buffer.awaitRoom(5); // 4 seconds ahead - room for another frame
+        buffer.add(frame(5));
+        Thread mover = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+            }
+            buffer.setPlayhead(2);
+        });
+        mover.start();
+        buffer.awaitRoom(5); // waits until the playhead moves
+        assertEquals(2, buffer.getPlayhead());
+        mover.join();
+    }
+}
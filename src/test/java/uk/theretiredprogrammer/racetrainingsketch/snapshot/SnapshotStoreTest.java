@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class SnapshotStoreTest {
+
+    private SnapshotStore create(double interval, int capacity, double endtime) {
+        SnapshotStore store = new SnapshotStore(interval, capacity);
+        for (double time = 0; time <= endtime; time++) {
+            if (store.isDue(time)) {
+                store.add(new Snapshot(time, new byte[]{(byte) time}, 0));
+            }
+        }
+        return store;
+    }
+
+    @Test
+    public void testIsDue() {
+        System.out.println("is due");
+        SnapshotStore store = create(10, 100, 95);
+        assertEquals(10, store.size());
+        assertFalse(store.isDue(99));
+        assertTrue(store.isDue(100));
+    }
+
+    @Test
+    public void testGetLatest() {
+        System.out.println("get latest");
+        SnapshotStore store = create(10, 100, 95);
+        assertEquals(30, store.getLatest(30).get().time);
+        assertEquals(30, store.getLatest(39.5).get().time);
+        assertEquals(90, store.getLatest(1000).get().time);
+        assertFalse(store.getLatest(-1).isPresent());
+    }
+
+    @Test
+    public void testBounded() {
+        System.out.println("bounded");
+        SnapshotStore store = create(10, 8, 3600);
+        assertTrue(store.size() < 8);
+        assertTrue(store.getInterval() > 10);
+        assertEquals(0, store.getLatest(0).get().time);
+        // the snapshots still cover the whole run
+        assertTrue(3600 - store.getLatest(3600).get().time <= store.getInterval());
+    }
+
+    @Test
+    public void testDiscardAfter() {
+        System.out.println("discard after");
+        SnapshotStore store = create(10, 100, 95);
+        store.discardAfter(45);
+        assertEquals(5, store.size());
+        assertEquals(40, store.getLatest(1000).get().time);
+        assertFalse(store.isDue(45));
+        assertTrue(store.isDue(50));
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        System.out.println("checkpoint");
+        SnapshotStore store = create(10, 100, 95);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        store.write(os);
+        SnapshotStore loaded = SnapshotStore.read(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(store.size(), loaded.size());
+        assertEquals(store.getInterval(), loaded.getInterval());
+        assertArrayEquals(store.getLatest(55).get().getState(), loaded.getLatest(55).get().getState());
+        assertTrue(loaded.isDue(100));
+    }
+
+    @Test
+    public void testNotACheckpoint() {
+        System.out.println("not a checkpoint");
+        assertThrows(IOException.class, () -> SnapshotStore.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+}
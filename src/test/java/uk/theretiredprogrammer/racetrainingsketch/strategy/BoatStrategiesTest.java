@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.strategy;
+
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
+import uk.theretiredprogrammer.racetrainingsketch.ui.Controller;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class BoatStrategiesTest {
+
+    private void requestpaint(String s) {
+        fail("BAD - request for paint made -should not occur");
+    }
+
+    private Controller runFor(String filename, int seconds) throws IOException {
+        Controller controller = new Controller(filename, (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(seconds);
+        assertEquals(seconds, report.steps);
+        return controller;
+    }
+
+    private Controller runToFinish(String filename) throws IOException {
+        Controller controller = new Controller(filename, (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        assertTrue(report.finished);
+        return controller;
+    }
+
+    @Test
+    public void testFleetMatchesSingleBoat() throws IOException {
+        System.out.println("fleet (parallel decisions) matches single boat");
+        Boat single = runFor("/windwardleeward-single.json", 600).boats.getBoat("Red");
+        Boat fleet = runFor("/windwardleeward-fleet.json", 600).boats.getBoat("Red");
+        assertEquals(single.location, fleet.location);
+        assertEquals(single.direction, fleet.direction);
+    }
+
+    @Test
+    public void testFleetIsRepeatable() throws IOException {
+        System.out.println("fleet (parallel decisions) is repeatable");
+        Controller first = runToFinish("/windwardleeward-fleet.json");
+        Controller second = runToFinish("/windwardleeward-fleet.json");
+        for (Boat boat : first.boats.getBoats()) {
+            Boat other = second.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+        }
+    }
+
+    @Test
+    public void testFleetWithWindShadow() throws IOException {
+        System.out.println("fleet with wind shadow is repeatable");
+        Controller first = runToFinish("/windwardleeward-fleet-shadow.json");
+        Controller second = runToFinish("/windwardleeward-fleet-shadow.json");
+        Controller clear = runToFinish("/windwardleeward-fleet.json");
+        boolean shadowed = false;
+        for (Boat boat : first.boats.getBoats()) {
+            Boat other = second.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+            shadowed = shadowed || !boat.location.equals(clear.boats.getBoat(boat.name).location);
+        }
+        assertTrue(shadowed);
+    }
+}
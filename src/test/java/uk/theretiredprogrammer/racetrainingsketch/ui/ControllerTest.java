@@ -0,0 +1,367 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import uk.theretiredprogrammer.racetrainingsketch.boats.Boat;
+import uk.theretiredprogrammer.racetrainingsketch.flows.Flow;
+import uk.theretiredprogrammer.racetrainingsketch.snapshot.SnapshotStore;
+import uk.theretiredprogrammer.racetrainingsketch.strategy.LegSplit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class ControllerTest {
+
+    private void requestpaint(String s) {
+        fail("BAD - request for paint made -should not occur");
+    }
+
+    @Test
+    public void testRunToFinish() throws IOException {
+        System.out.println("run to finish");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        System.out.println(report);
+        assertTrue(report.finished);
+        assertTrue(report.steps > 0);
+        assertTrue(controller.boatstrategies.isAllFinished());
+    }
+
+    @Test
+    public void testRunToTimeLimit() throws IOException {
+        System.out.println("run to time limit");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(60);
+        assertFalse(report.finished);
+        assertEquals(60, report.steps);
+    }
+
+    @Test
+    public void testSeededRunIsRepeatable() throws IOException {
+        System.out.println("seeded run is repeatable");
+        Controller first = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        Controller second = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        assertEquals(20200601L, first.getRandom().getSeed());
+        first.runToFinish(first.displayparameters.timelimit);
+        second.runToFinish(second.displayparameters.timelimit);
+        for (Boat boat : first.boats.getBoats()) {
+            Boat other = second.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+            assertEquals(first.boatstrategies.getLegSplits(boat).size(), second.boatstrategies.getLegSplits(other).size());
+        }
+    }
+
+    private void assertFinishTimesMatch(Controller expected, Controller actual, double tolerance) {
+        for (Boat boat : expected.boats.getBoats()) {
+            List<LegSplit> expectedsplits = expected.boatstrategies.getLegSplits(boat);
+            List<LegSplit> actualsplits = actual.boatstrategies.getLegSplits(actual.boats.getBoat(boat.name));
+            assertEquals(expectedsplits.size(), actualsplits.size());
+            for (int i = 0; i < expectedsplits.size(); i++) {
+                assertEquals(expectedsplits.get(i).time, actualsplits.get(i).time, tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testFineTimeStep() throws IOException {
+        System.out.println("fine time step");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        Controller finecontroller = new Controller("/windwardleeward-finestep.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport finereport = finecontroller.runToFinish(finecontroller.displayparameters.timelimit);
+        assertTrue(finereport.finished);
+        assertTrue(finereport.steps > report.steps * 3);
+        assertFinishTimesMatch(controller, finecontroller, 5);
+    }
+
+    @Test
+    public void testAdaptiveTimeStep() throws IOException {
+        System.out.println("adaptive time step");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        Controller adaptivecontroller = new Controller("/windwardleeward-adaptive.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport adaptivereport = adaptivecontroller.runToFinish(adaptivecontroller.displayparameters.timelimit);
+        System.out.println(adaptivereport);
+        assertTrue(adaptivereport.finished);
+        assertTrue(adaptivereport.steps < report.steps / 2);
+        assertFinishTimesMatch(controller, adaptivecontroller, 5);
+    }
+
+    @Test
+    public void testTimeWarp() throws IOException {
+        System.out.println("time warp");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport report = controller.runToFinish(controller.displayparameters.timelimit);
+        Controller warpcontroller = new Controller("/windwardleeward-timewarp.json", (s) -> requestpaint(s));
+        Controller.FastForwardReport warpreport = warpcontroller.runToFinish(warpcontroller.displayparameters.timelimit);
+        System.out.println(warpreport);
+        assertTrue(warpreport.finished);
+        assertTrue(warpreport.steps < report.steps);
+        assertFinishTimesMatch(controller, warpcontroller, 0);
+        for (Boat boat : controller.boats.getBoats()) {
+            Boat other = warpcontroller.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+        }
+    }
+
+    @Test
+    public void testTimeWarpTakesSnapshots() throws IOException {
+        System.out.println("time warp takes snapshots");
+        Controller controller = new Controller("/windwardleeward-race.json", (s) -> requestpaint(s));
+        controller.runToFinish(controller.displayparameters.timelimit);
+        Controller warpcontroller = new Controller("/windwardleeward-timewarp.json", (s) -> requestpaint(s));
+        warpcontroller.runToFinish(warpcontroller.displayparameters.timelimit);
+        SnapshotStore expected = readCheckpoint(controller);
+        SnapshotStore actual = readCheckpoint(warpcontroller);
+        assertEquals(expected.size(), actual.size());
+        double interval = warpcontroller.displayparameters.snapshotinterval;
+        for (double time = 0; time <= warpcontroller.getSimulationTime(); time += interval) {
+            assertEquals(time, actual.getLatest(time).get().time, 1E-6);
+        }
+    }
+
+    private SnapshotStore readCheckpoint(Controller controller) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        controller.saveCheckpoint(os);
+        return SnapshotStore.read(new ByteArrayInputStream(os.toByteArray()));
+    }
+
+    private void assertSameState(Controller expected, Controller actual) {
+        assertEquals(expected.getSimulationTime(), actual.getSimulationTime(), 1E-6);
+        for (Boat boat : expected.boats.getBoats()) {
+            Boat other = actual.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+            assertEquals(boat.getDistanceSailed(), other.getDistanceSailed());
+        }
+        assertFinishTimesMatch(expected, actual, 0);
+    }
+
+    @Test
+    public void testRewind() throws IOException {
+        System.out.println("rewind");
+        Controller expected = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        expected.moveTo(900);
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        controller.moveTo(1200);
+        controller.moveTo(887);
+        assertEquals(887, controller.getSimulationTime(), 1E-6);
+        controller.moveTo(900);
+        assertSameState(expected, controller);
+        expected.moveTo(1800);
+        controller.moveTo(1800);
+        assertSameState(expected, controller);
+    }
+
+    @Test
+    public void testKeyframesRewind() throws IOException {
+        System.out.println("keyframes rewind");
+        Controller expected = new Controller("/windwardleeward-keyframes.json", (s) -> requestpaint(s));
+        expected.moveTo(900);
+        Controller controller = new Controller("/windwardleeward-keyframes.json", (s) -> requestpaint(s));
+        controller.moveTo(1500);
+        controller.moveTo(450);
+        controller.moveTo(900);
+        assertSameState(expected, controller);
+        expected.moveTo(1800);
+        controller.moveTo(1800);
+        assertSameState(expected, controller);
+    }
+
+    @Test
+    public void testGustsRewind() throws IOException {
+        System.out.println("gusts rewind");
+        Controller expected = new Controller("/windwardleeward-gusts.json", (s) -> requestpaint(s));
+        expected.moveTo(900);
+        Controller controller = new Controller("/windwardleeward-gusts.json", (s) -> requestpaint(s));
+        controller.moveTo(1500);
+        controller.moveTo(450);
+        controller.moveTo(900);
+        assertSameState(expected, controller);
+        expected.moveTo(1800);
+        controller.moveTo(1800);
+        assertSameState(expected, controller);
+    }
+
+    @Test
+    public void testTidesRewind() throws IOException {
+        System.out.println("tides rewind");
+        Controller expected = new Controller("/windwardleeward-tides.json", (s) -> requestpaint(s));
+        expected.moveTo(900);
+        Controller controller = new Controller("/windwardleeward-tides.json", (s) -> requestpaint(s));
+        controller.moveTo(1500);
+        controller.moveTo(450);
+        controller.moveTo(900);
+        assertSameState(expected, controller);
+        expected.moveTo(1800);
+        controller.moveTo(1800);
+        assertSameState(expected, controller);
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        System.out.println("checkpoint");
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        controller.moveTo(905);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        controller.saveCheckpoint(os);
+        Controller loaded = new Controller("/windwardleeward-shifts.json", (s) -> {
+        });
+        loaded.loadCheckpoint(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(900, loaded.getSimulationTime(), 1E-6);
+        controller.moveTo(1800);
+        loaded.moveTo(1800);
+        assertSameState(controller, loaded);
+    }
+
+    private void awaitBufferEnd(Controller controller, double time) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (controller.getBufferEndTime() < time) {
+            assertTrue(System.currentTimeMillis() < deadline, "producer did not reach " + time);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testProducer() throws IOException, InterruptedException {
+        System.out.println("producer");
+        Controller expected = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        expected.moveTo(300);
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> {
+        });
+        try {
+            controller.startProducer();
+            // runs ahead by half the frame buffer (600 frames) and then waits
+            awaitBufferEnd(controller, 300);
+            Thread.sleep(50);
+            assertEquals(300, controller.getBufferEndTime());
+            assertEquals(0, controller.getDisplayTime());
+            controller.seek(300);
+            assertEquals(300, controller.getDisplayTime());
+            for (Boat boat : expected.boats.getBoats()) {
+                assertEquals(boat.location, controller.getCurrentFrame().getBoatFrame(boat.name).location);
+                assertEquals(boat.direction, controller.getCurrentFrame().getBoatFrame(boat.name).direction);
+            }
+            // moving the playhead lets the producer run on
+            awaitBufferEnd(controller, 600);
+            controller.seek(120.5);
+            assertEquals(120, controller.getDisplayTime());
+        } finally {
+            controller.stopProducer();
+        }
+    }
+
+    private JsonObject readDefinition(String resourcename) throws IOException {
+        try ( JsonReader rdr = Json.createReader(this.getClass().getResourceAsStream(resourcename))) {
+            return rdr.readObject();
+        }
+    }
+
+    private void assertSameRun(Controller expected, Controller actual) {
+        for (Boat boat : expected.boats.getBoats()) {
+            Boat other = actual.boats.getBoat(boat.name);
+            assertEquals(boat.location, other.location);
+            assertEquals(boat.direction, other.direction);
+            assertEquals(expected.boatstrategies.getLegSplits(boat).size(), actual.boatstrategies.getLegSplits(other).size());
+        }
+        assertEquals(expected.getSimulationTime(), actual.getSimulationTime());
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        System.out.println("reload");
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        Boat red = controller.boats.getBoat("Red");
+        Boat blue = controller.boats.getBoat("Blue");
+        Boat green = controller.boats.getBoat("Green");
+        Flow windflow = controller.windflow;
+        controller.moveTo(600);
+        controller.reload(readDefinition("/windwardleeward-shifts-edited.json"));
+        assertEquals(0, controller.getSimulationTime());
+        assertNotSame(red, controller.boats.getBoat("Red")); // heading removed - so rebuilt
+        assertNotSame(blue, controller.boats.getBoat("Blue")); // colour changed - so rebuilt
+        assertNotSame(green, controller.boats.getBoat("Green")); // upwindtackifheaded changed - so rebuilt
+        assertFalse(green.upwindtackifheaded); // and the previous boat is left as it was
+        assertTrue(controller.boats.getBoat("Green").upwindtackifheaded);
+        assertSame(windflow, controller.windflow);
+        controller.runToFinish(controller.displayparameters.timelimit);
+        Controller expected = new Controller("/windwardleeward-shifts-edited.json", (s) -> requestpaint(s));
+        expected.runToFinish(expected.displayparameters.timelimit);
+        assertSameRun(expected, controller);
+    }
+
+    @Test
+    public void testReloadFailureKeepsSimulation() throws IOException {
+        System.out.println("reload failure keeps simulation");
+        Controller controller = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        DisplayParameters displayparameters = controller.displayparameters;
+        Flow windflow = controller.windflow;
+        Boat red = controller.boats.getBoat("Red");
+        controller.moveTo(600);
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        readDefinition("/windwardleeward-shifts.json").forEach((key, value) -> builder.add(key, value));
+        JsonObject newjson = builder
+                .add("DISPLAY", Json.createObjectBuilder().add("zoom", 1).add("speedup", 10).add("timelimit", 3600))
+                .add("WIND-SHIFTS", Json.createObjectBuilder().add("shiftangle", 20).add("shiftperiod", 300)
+                        .add("randomshifts", true).add("seed", 20200601))
+                .add("BOATS", Json.createArrayBuilder().add(1))
+                .build();
+        assertThrows(IOException.class, () -> controller.reload(newjson));
+        assertEquals(600, controller.getSimulationTime());
+        assertSame(displayparameters, controller.displayparameters);
+        assertSame(windflow, controller.windflow);
+        assertSame(red, controller.boats.getBoat("Red"));
+        controller.runToFinish(controller.displayparameters.timelimit);
+        Controller expected = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        expected.runToFinish(expected.displayparameters.timelimit);
+        assertSameRun(expected, controller);
+    }
+
+    @Test
+    public void testReloadRestoresRemovedParameters() throws IOException {
+        System.out.println("reload restores removed parameters");
+        Controller controller = new Controller("/windwardleeward-shifts-edited.json", (s) -> requestpaint(s));
+        Boat green = controller.boats.getBoat("Green");
+        Flow windflow = controller.windflow;
+        controller.moveTo(600);
+        controller.reload(readDefinition("/windwardleeward-shifts.json"));
+        assertNotSame(green, controller.boats.getBoat("Green")); // upwindtackifheaded removed - so rebuilt
+        assertFalse(controller.boats.getBoat("Green").upwindtackifheaded);
+        assertSame(windflow, controller.windflow); // shift angle changed in place
+        controller.runToFinish(controller.displayparameters.timelimit);
+        Controller expected = new Controller("/windwardleeward-shifts.json", (s) -> requestpaint(s));
+        expected.runToFinish(expected.displayparameters.timelimit);
+        assertSameRun(expected, controller);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Richard Linsdale.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.theretiredprogrammer.racetrainingsketch.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Richard Linsdale (richard at theretiredprogrammer.uk)
+ */
+public class TimeStepSchedulerTest {
+
+    private final static long PERIOD = 50_000_000; // 50ms
+    private final static long RUNTIME = 1000; // ms
+
+    // the times of each ticks action
+    private List<Long> runTicks(boolean changeperiod, boolean restart) throws InterruptedException {
+        List<Long> ticks = Collections.synchronizedList(new ArrayList<>());
+        TimeStepScheduler[] scheduler = new TimeStepScheduler[1];
+        scheduler[0] = new TimeStepScheduler((due) -> {
+            for (int i = 0; i < due; i++) {
+                ticks.add(System.nanoTime());
+            }
+            // change the period, or restart, while running the first ticks
+            if (ticks.size() <= 5) {
+                if (changeperiod) {
+                    scheduler[0].setPeriod(PERIOD);
+                }
+                if (restart) {
+                    scheduler[0].stop();
+                    scheduler[0].start(PERIOD);
+                }
+            }
+        });
+        scheduler[0].start(PERIOD);
+        Thread.sleep(RUNTIME);
+        scheduler[0].stop();
+        return new ArrayList<>(ticks);
+    }
+
+    private void assertTickCount(List<Long> ticks, int extra) {
+        int expected = (int) (RUNTIME * 1_000_000 / PERIOD) + extra;
+        assertTrue(ticks.size() >= expected - 4 && ticks.size() <= expected + 1, "ticks " + ticks.size());
+    }
+
+    @Test
+    public void testTickRate() throws InterruptedException {
+        System.out.println("tick rate");
+        assertTickCount(runTicks(false, false), 0);
+    }
+
+    @Test
+    public void testSetPeriodWhileTicking() throws InterruptedException {
+        System.out.println("set period while ticking");
+        List<Long> ticks = runTicks(true, false);
+        assertTickCount(ticks, 0);
+        // a single chain of ticks - none run early
+        for (int i = 1; i < ticks.size(); i++) {
+            assertTrue(ticks.get(i) - ticks.get(i - 1) > PERIOD / 2, "tick " + i + " early");
+        }
+    }
+
+    @Test
+    public void testRestartWhileTicking() throws InterruptedException {
+        System.out.println("restart while ticking");
+        // each restart ticks immediately
+        assertTickCount(runTicks(false, true), 5);
+    }
+}